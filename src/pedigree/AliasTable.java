@@ -0,0 +1,127 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The class {@link AliasTable} samples indices following a discrete
+ * distribution in constant time with the alias method of Walker, as set up by
+ * Vose. Each index owns an equal slice of the unit interval, split between
+ * itself and an alias, so a single uniform draw picks the slice and the side
+ * of the split.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class AliasTable {
+    
+    private final double[] cut; // Share of each slice kept by its index
+    private final int[] alias;  // Index owning the rest of each slice
+    
+    /**
+     * Initializes a table sampling each index with a probability
+     * proportional to its weight.
+     *
+     * @param weights Non-negative weights, not all zero
+     * @throws IllegalArgumentException if a weight is negative or if they
+     * are all zero
+     */
+    
+    public AliasTable(double[] weights) {
+        
+        int n = weights.length;
+        double total = 0.0;
+        
+        for (double w : weights) {
+            
+            if (!(w >= 0.0)) {
+                
+                throw new IllegalArgumentException("Negative weight");
+            }
+            
+            total += w;
+        }
+        
+        if (!(total > 0.0)) {
+            
+            throw new IllegalArgumentException("No positive weight");
+        }
+        
+        cut = new double[n];
+        alias = new int[n];
+        
+        int[] small = new int[n]; // Slices not yet filled, as a stack
+        int[] large = new int[n]; // Slices with a surplus, as a stack
+        int smalls = 0;
+        int larges = 0;
+        
+        for (int i = 0; i < n; i++) {
+            
+            cut[i] = weights[i] * n / total;
+            alias[i] = i;
+            
+            if (cut[i] < 1.0) {
+                
+                small[smalls++] = i;
+            } else {
+                
+                large[larges++] = i;
+            }
+        }
+        
+        // Filling each small slice with the surplus of a large one
+        while (smalls > 0 && larges > 0) {
+            
+            int s = small[--smalls];
+            int l = large[--larges];
+            
+            alias[s] = l;
+            cut[l] -= 1.0 - cut[s];
+            
+            if (cut[l] < 1.0) {
+                
+                small[smalls++] = l;
+            } else {
+                
+                large[larges++] = l;
+            }
+        }
+        
+        // Slices left over are full up to rounding errors
+        while (larges > 0) {
+            
+            cut[large[--larges]] = 1.0;
+        }
+        
+        while (smalls > 0) {
+            
+            cut[small[--smalls]] = 1.0;
+        }
+    }
+    
+    /**
+     * Retrieves the number of indices sampled.
+     *
+     * @return The number of indices
+     */
+    
+    public int size() {
+        
+        return cut.length;
+    }
+    
+    /**
+     * Draws an index at random.
+     *
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return The index drawn
+     */
+    
+    public int sample(Random rnd) {
+        
+        double u = rnd.nextDouble() * cut.length;
+        int i = Math.min((int)u, cut.length - 1);
+        
+        return u - i < cut[i] ? i : alias[i];
+    }
+}
\ No newline at end of file
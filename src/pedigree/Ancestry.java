@@ -0,0 +1,383 @@
+package pedigree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The class {@link Ancestry} traces the genealogical ancestors of a group of
+ * living {@link Sim}s through both parents. Going back in time from the
+ * youngest {@link Sim} to the oldest, each ancestor carries the set of living
+ * {@link Sim}s descending from it as a bitset, merged into the sets of its
+ * mother and father once all its children were visited. An ancestor is
+ * universal when every living {@link Sim} descends from it.
+ *
+ * <p>The identical ancestors point is the birth time before which every
+ * {@link Sim} is either a universal ancestor or has no living descendant. The
+ * tracing stops as soon as it is reached: sets which became full are then
+ * shared and no partial set remains, so every older ancestor is universal.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Ancestry {
+    
+    private static final long[] FULL = new long[0]; // Shared full set
+    
+    private final int living;      // Number of living Sims tracked
+    private final double present;  // Time at which the Sims were taken
+    private final double binWidth; // Width of the birth time bins
+    
+    // Ancestors with all or some living Sims as descendants by birth time bin
+    private final Map<Double, Integer> universal;
+    private final Map<Double, Integer> partial;
+    
+    private final Deque<long[]> pool; // Released sets for reuse
+    private final int words;          // Length of a set
+    private final long lastMask;      // Bits of the last word in use
+    
+    private Sim mostRecent;            // Most recent universal ancestor
+    private double iap = Double.NaN;   // Identical ancestors point
+    
+    /**
+     * Initializes an empty record of the ancestry of a group.
+     *
+     * @param living Number of living {@link Sim}s in the group
+     * @param present Time at which the {@link Sim}s were taken
+     * @param binWidth Width of the birth time bins
+     */
+    
+    private Ancestry(int living, double present, double binWidth) {
+        
+        this.living = living;
+        this.present = present;
+        this.binWidth = binWidth;
+        
+        universal = new TreeMap<Double, Integer>();
+        partial = new TreeMap<Double, Integer>();
+        pool = new ArrayDeque<long[]>();
+        words = (living + 63) >>> 6;
+        lastMask = living % 64 == 0 ? -1L : (1L << (living % 64)) - 1;
+    }
+    
+    /**
+     * Traces the genealogical ancestors of the given living {@link Sim}s
+     * back to their identical ancestors point, or to the founders if it is
+     * not reached. Ancestors are counted by birth time bins of the given
+     * width.
+     *
+     * @param group The living {@link Sim}s, without duplicates
+     * @param present Time at which the {@link Sim}s were taken
+     * @param binWidth Width of the birth time bins
+     * @return The ancestry of the group
+     * @throws IllegalArgumentException if the bin width is not positive
+     */
+    
+    public static Ancestry trace(List<Sim> group, double present,
+        double binWidth) {
+        
+        if (!(binWidth > 0.0)) {
+            
+            throw new IllegalArgumentException("Non-positive bin width");
+        }
+        
+        Ancestry a = new Ancestry(group.size(), present, binWidth);
+        
+        if (!group.isEmpty()) {
+            
+            a.traverse(group);
+        }
+        
+        return a;
+    }
+    
+    /**
+     * Retrieves the number of living {@link Sim}s whose ancestors were
+     * traced.
+     *
+     * @return The size of the group
+     */
+    
+    public int getLiving() {
+        
+        return living;
+    }
+    
+    /**
+     * Indicates whether the identical ancestors point was reached before the
+     * founders.
+     *
+     * @return <ul><li>{@code true} if the identical ancestors point was
+     * found</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean isComplete() {
+        
+        return !Double.isNaN(iap);
+    }
+    
+    /**
+     * Retrieves the identical ancestors point, the birth time before which
+     * every {@link Sim} is either a universal ancestor or has no living
+     * descendant.
+     *
+     * @return The identical ancestors point or NaN if it was not reached
+     */
+    
+    public double getIdenticalAncestorsPoint() {
+        
+        return iap;
+    }
+    
+    /**
+     * Retrieves the time from the identical ancestors point to the time the
+     * {@link Sim}s were taken.
+     *
+     * @return The time to the identical ancestors point or NaN if it was not
+     * reached
+     */
+    
+    public double getTimeToIdenticalAncestors() {
+        
+        return present - iap;
+    }
+    
+    /**
+     * Retrieves the most recent universal ancestor of the group, the
+     * youngest {@link Sim} every living {@link Sim} descends from.
+     *
+     * @return The most recent universal ancestor or null if none was found
+     */
+    
+    public Sim getMostRecentUniversal() {
+        
+        return mostRecent;
+    }
+    
+    /**
+     * Retrieves the time from the birth of the most recent universal
+     * ancestor to the time the {@link Sim}s were taken.
+     *
+     * @return The time to the most recent universal ancestor or NaN if none
+     * was found
+     */
+    
+    public double getTmrca() {
+        
+        return mostRecent == null ?
+            Double.NaN : present - mostRecent.getBirthTime();
+    }
+    
+    /**
+     * Retrieves the number of universal ancestors by birth time bin, down to
+     * the identical ancestors point. Every older ancestor is universal.
+     *
+     * @return {@link Map} of the number of universal ancestors keyed by the
+     * start of their bin
+     */
+    
+    public Map<Double, Integer> getUniversal() {
+        
+        return universal;
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s, the living ones included, with
+     * some but not all living {@link Sim}s as descendants by birth time bin.
+     *
+     * @return {@link Map} of the number of partial ancestors keyed by the
+     * start of their bin
+     */
+    
+    public Map<Double, Integer> getPartial() {
+        
+        return partial;
+    }
+    
+    /**
+     * Visits the ancestors of the group from the youngest to the oldest. The
+     * set of an ancestor is complete once it is visited, since all its
+     * children are younger.
+     *
+     * @param group The living {@link Sim}s
+     */
+    
+    private void traverse(List<Sim> group) {
+        
+        Map<Sim, long[]> sets = new HashMap<Sim, long[]>();
+        int partials = 0; // Sets awaiting their visit which are not full
+        
+        for (int i = 0; i < group.size(); i++) {
+            
+            long[] set = living == 1 ? FULL : allocate();
+            
+            if (set != FULL) {
+                
+                set[i >>> 6] |= 1L << i;
+                partials++;
+            }
+            
+            sets.put(group.get(i), set);
+        }
+        
+        // Keyed by negated birth times so that the youngest comes first
+        DoubleKeyMinPQ<Sim> frontier = new DoubleKeyMinPQ<Sim>();
+        
+        frontier.insertAll(group, sim -> -sim.getBirthTime());
+        Sim oldestPartial = null;
+        
+        // Stopping once every ancestor left to visit is universal
+        while (!frontier.isEmpty() && partials > 0) {
+            
+            Sim youngest = frontier.delMin();
+            long[] set = sets.remove(youngest);
+            
+            if (set == FULL) {
+                
+                count(universal, youngest);
+                
+                if (mostRecent == null) {
+                    
+                    mostRecent = youngest;
+                }
+            } else {
+                
+                count(partial, youngest);
+                oldestPartial = youngest;
+                partials--;
+            }
+            
+            if (!youngest.isFounder()) {
+                
+                partials += inherit(sets, frontier, youngest.getMother(), set);
+                partials += inherit(sets, frontier, youngest.getFather(), set);
+            }
+            
+            release(set);
+        }
+        
+        // A lone Sim is trivially its own universal ancestor, while a partial
+        // founder leaves the point beyond the pedigree
+        if (partials == 0
+            && (oldestPartial == null || !oldestPartial.isFounder())) {
+            
+            iap = oldestPartial == null ?
+                present : oldestPartial.getBirthTime();
+        }
+        
+        // Ancestors left to visit are universal, the youngest coming first
+        if (mostRecent == null && !frontier.isEmpty()) {
+            
+            mostRecent = frontier.peek();
+        }
+    }
+    
+    /**
+     * Merges the set of a child into the set of one of its parents, adding
+     * the parent to the ancestors to visit if needed.
+     *
+     * @param sets Sets of the ancestors awaiting their visit
+     * @param frontier Ancestors awaiting their visit, youngest first
+     * @param parent Parent of the child
+     * @param child Set of the child
+     * @return The change in the number of partial sets awaiting their visit
+     */
+    
+    private int inherit(Map<Sim, long[]> sets, DoubleKeyMinPQ<Sim> frontier,
+        Sim parent, long[] child) {
+        
+        long[] set = sets.get(parent);
+        
+        if (set == null) {
+            
+            frontier.insert(parent, -parent.getBirthTime());
+            
+            if (child == FULL) {
+                
+                sets.put(parent, FULL);
+                return 0;
+            }
+            
+            set = allocate();
+            System.arraycopy(child, 0, set, 0, words);
+            sets.put(parent, set);
+            return 1;
+        }
+        
+        if (set == FULL) {
+            
+            return 0;
+        }
+        
+        if (child == FULL) {
+            
+            release(set);
+            sets.put(parent, FULL);
+            return -1;
+        }
+        
+        boolean full = true;
+        
+        for (int w = 0; w < words; w++) {
+            
+            set[w] |= child[w];
+            full &= set[w] == (w == words - 1 ? lastMask : -1L);
+        }
+        
+        if (full) {
+            
+            release(set);
+            sets.put(parent, FULL);
+            return -1;
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Counts a {@link Sim} in the bin of its birth time.
+     *
+     * @param bins Counts by the start of their bin
+     * @param sim The {@link Sim} to count
+     */
+    
+    private void count(Map<Double, Integer> bins, Sim sim) {
+        
+        double bin = Math.floor(sim.getBirthTime() / binWidth) * binWidth;
+        
+        bins.merge(bin, 1, Integer::sum);
+    }
+    
+    /**
+     * Retrieves an empty set, reusing a released one if possible.
+     *
+     * @return The empty set
+     */
+    
+    private long[] allocate() {
+        
+        long[] set = pool.poll();
+        
+        return set != null ? set : new long[words];
+    }
+    
+    /**
+     * Clears a set no longer in use and keeps it for reuse.
+     *
+     * @param set The set to release
+     */
+    
+    private void release(long[] set) {
+        
+        if (set != FULL) {
+            
+            Arrays.fill(set, 0L);
+            pool.push(set);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The class {@link AssortativeMateChoice} mates {@link Sim}s of similar ages:
+ * a male drawn from the {@link MatePool} is accepted with a probability
+ * falling off as a Gaussian of the distance between the age gap of the
+ * couple and a preferred one. The draws are bounded, the most likely male
+ * drawn being picked when none is accepted.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class AssortativeMateChoice implements MateChoice {
+    
+    public static final double DEFAULT_SPREAD = 5.0; // Years
+    public static final int DEFAULT_DRAWS = 8;       // Males drawn at most
+    
+    private final double ageGap; // Preferred age of the male minus hers
+    private final double spread; // Standard deviation of the preference
+    private final int maxDraws;  // Males drawn at most per search
+    
+    /**
+     * Initializes the choice with the given preference.
+     *
+     * @param ageGap Preferred age of the male minus the age of the mother
+     * @param spread Standard deviation of the age gap around the preferred
+     * one, in years
+     * @param maxDraws Number of males drawn at most per search
+     * @throws IllegalArgumentException if the spread is not positive or if
+     * there is not at least one draw
+     */
+    
+    public AssortativeMateChoice(double ageGap, double spread, int maxDraws) {
+        
+        if (!(spread > 0.0)) {
+            
+            throw new IllegalArgumentException("Spread must be positive");
+        }
+        
+        if (maxDraws < 1) {
+            
+            throw new IllegalArgumentException("Needs a draw");
+        }
+        
+        this.ageGap = ageGap;
+        this.spread = spread;
+        this.maxDraws = maxDraws;
+    }
+    
+    /**
+     * Initializes the choice with no preferred age gap, the default spread
+     * and the default number of draws.
+     */
+    
+    public AssortativeMateChoice() {
+        
+        this(0.0, DEFAULT_SPREAD, DEFAULT_DRAWS);
+    }
+    
+    /**
+     * Draws males until one is accepted following the age preference, or
+     * picks the most likely male drawn once the draws run out.
+     *
+     * @param mother The female {@link Sim} looking for a mate
+     * @param pool The males of mating age of her {@link Deme}
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return The candidate or null if the pool holds no male of positive
+     * weight
+     */
+    
+    @Override
+    public Sim choose(Sim mother, MatePool pool, double partneredWeight,
+        Random rnd) {
+        
+        Sim best = null;
+        double bestChance = -1.0;
+        
+        for (int i = 0; i < maxDraws; i++) {
+            
+            Sim male = pool.draw(rnd, partneredWeight);
+            
+            if (male == null) {
+                
+                return null;
+            }
+            
+            double z = (mother.getBirthTime() - male.getBirthTime() - ageGap)
+                / spread;
+            double chance = Math.exp(-0.5 * z * z);
+            
+            if (rnd.nextDouble() < chance) {
+                
+                return male;
+            }
+            
+            if (chance > bestChance) {
+                
+                best = male;
+                bestChance = chance;
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Defines the string implementation of an {@link AssortativeMateChoice}.
+     *
+     * @return String implementation of {@link AssortativeMateChoice}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[gap ").append(ageGap).append(", spread ").append(spread)
+        .append(", draws ").append(maxDraws).append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
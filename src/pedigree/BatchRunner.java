@@ -0,0 +1,106 @@
+package pedigree;
+
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The class {@link BatchRunner} runs a series of simulations without any
+ * display. The results of each run are exported and their chart is rendered
+ * offscreen by a pool of worker threads while the following runs proceed.
+ * The runs are also aggregated on a common time grid, whose quantile bands
+ * are exported and charted once every run is over.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class BatchRunner {
+    
+    static final int CHART_WIDTH = 1440;  // Width of rendered charts
+    static final int CHART_HEIGHT = 900;  // Height of rendered charts
+    static final int BAND_POINTS = 501;   // Grid times of the quantile bands
+    
+    /**
+     * Runs the given number of simulations and writes, for each run
+     * {@code i}, the files {@code run-i.csv} and {@code run-i.png} in the
+     * given directory, followed by the quantile bands of all runs in
+     * {@code bands.csv} and {@code bands.png}.
+     *
+     * @param founders Number of founding {@link Sim}s
+     * @param tMax Maximum time length of each simulation
+     * @param runs Number of simulations to run
+     * @param dir Directory receiving the files
+     * @param threads Number of threads rendering the charts
+     * @throws IOException if a file could not be written
+     */
+    
+    public static void run(int founders, double tMax, int runs, Path dir,
+        int threads) throws IOException {
+        
+        Files.createDirectories(dir);
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> charts = new ArrayList<Future<Void>>(runs);
+        ReplicateAggregator replicates =
+            new ReplicateAggregator(Math.max(tMax, 1.0), BAND_POINTS);
+        
+        try {
+            
+            for (int i = 0; i < runs; i++) {
+                
+                Simulation.simulate(founders, tMax);
+                ResultExporter.writeCsv(dir.resolve("run-" + i + ".csv"));
+                replicates.addLastRun();
+                
+                // The Maps of a run are not touched by the following runs
+                Map<String, Map<Double, Integer>> data =
+                    new LinkedHashMap<String, Map<Double, Integer>>();
+                
+                data.put(Simulation.POP_GROWTH, Simulation.getPopGrowth());
+                data.put(Simulation.COALESCENCE_F,
+                Simulation.getCoalescenceF());
+                data.put(Simulation.COALESCENCE_M,
+                Simulation.getCoalescenceM());
+                
+                Path png = dir.resolve("run-" + i + ".png");
+                
+                charts.add(pool.submit(() -> {
+                    
+                    SimPlot.saveChartAsPNG(png, data, CHART_WIDTH,
+                    CHART_HEIGHT);
+                    return null;
+                }));
+                
+                System.out.println("Run " + i + " done, seed "
+                + Simulation.getSeed());
+            }
+            
+            for (Future<Void> chart : charts) {
+                
+                chart.get();
+            }
+            
+            ResultExporter.writeBandsCsv(dir.resolve("bands.csv"), replicates);
+            SimPlot.saveBandsAsPNG(dir.resolve("bands.png"), replicates,
+            CHART_WIDTH, CHART_HEIGHT);
+        } catch(InterruptedException | ExecutionException e) {
+            
+            throw new IOException("Chart rendering failed", e);
+        } finally {
+            
+            pool.shutdown();
+        }
+    }
+}
\ No newline at end of file
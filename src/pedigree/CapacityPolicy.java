@@ -0,0 +1,161 @@
+package pedigree;
+
+/**
+ * The class {@link CapacityPolicy} rules how the array of a priority queue is
+ * resized. A full array grows by the growth factor, and an array shrinks by
+ * the same factor once the queue falls to the capacity divided by the
+ * growth factor times the hysteresis, so that a queue whose size oscillates
+ * does not resize back and forth. The capacity never falls below the
+ * minimum capacity, which also spares small queues any resize.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class CapacityPolicy {
+    
+    // Bytes counted per reference copied during a resize
+    static final int REFERENCE_BYTES = 8;
+    
+    // Largest capacity requested, some virtual machines reserving a few words
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    
+    // Doubling when full and halving at a quarter full
+    public static final CapacityPolicy DEFAULT = new CapacityPolicy(4, 2.0,
+    2.0);
+    
+    private final int minCapacity; // Capacity below which no array shrinks
+    private final double growth;    // Factor by which a full array grows
+    private final double hysteresis; // Extra emptiness before shrinking
+    
+    /**
+     * Initializes a policy with the given minimum capacity, growth factor
+     * and hysteresis.
+     *
+     * @param minCapacity Capacity below which no array shrinks
+     * @param growth Factor by which a full array grows, above 1
+     * @param hysteresis Factor by which an array must be emptier than right
+     * after growing before it shrinks, at least 1
+     * @throws IllegalArgumentException if the minimum capacity is not
+     * positive, if the growth factor is not above 1 or if the hysteresis is
+     * below 1
+     */
+    
+    public CapacityPolicy(int minCapacity, double growth, double hysteresis) {
+        
+        if (minCapacity < 1) {
+            
+            throw new IllegalArgumentException("Minimum capacity below 1");
+        }
+        
+        if (!(growth > 1.0)) {
+            
+            throw new IllegalArgumentException("Growth factor not above 1");
+        }
+        
+        if (!(hysteresis >= 1.0)) {
+            
+            throw new IllegalArgumentException("Hysteresis below 1");
+        }
+        
+        this.minCapacity = minCapacity;
+        this.growth = growth;
+        this.hysteresis = hysteresis;
+    }
+    
+    /**
+     * Retrieves the capacity below which no array shrinks.
+     *
+     * @return The minimum capacity
+     */
+    
+    public int getMinCapacity() {
+        
+        return minCapacity;
+    }
+    
+    /**
+     * Retrieves the factor by which a full array grows.
+     *
+     * @return The growth factor
+     */
+    
+    public double getGrowth() {
+        
+        return growth;
+    }
+    
+    /**
+     * Retrieves the factor by which an array must be emptier than right
+     * after growing before it shrinks.
+     *
+     * @return The hysteresis
+     */
+    
+    public double getHysteresis() {
+        
+        return hysteresis;
+    }
+    
+    /**
+     * Determines the capacity of an array to be grown so as to hold the given
+     * number of elements.
+     *
+     * @param capacity Current capacity
+     * @param needed Number of elements to hold
+     * @return The new capacity, at least the number of elements
+     */
+    
+    public int grow(int capacity, int needed) {
+        
+        double grown = Math.ceil(capacity * growth);
+        
+        return (int)Math.max(needed,
+        Math.max(minCapacity, Math.min(grown, MAX_CAPACITY)));
+    }
+    
+    /**
+     * Determines the size at or below which an array of the given capacity
+     * shrinks.
+     *
+     * @param capacity Current capacity
+     * @return The size at which it shrinks, -1 if it never does
+     */
+    
+    public int shrinkAt(int capacity) {
+        
+        return capacity > minCapacity ?
+            (int)(capacity / (growth * hysteresis)) : -1;
+    }
+    
+    /**
+     * Determines the capacity of an array to be shrunk.
+     *
+     * @param capacity Current capacity
+     * @param size Number of elements held
+     * @return The new capacity, at least the number of elements
+     */
+    
+    public int shrink(int capacity, int size) {
+        
+        return Math.max(size, Math.max(minCapacity,
+        (int)(capacity / growth)));
+    }
+    
+    /**
+     * Defines the string implementation of a {@link CapacityPolicy}.
+     *
+     * @return String implementation of {@link CapacityPolicy}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[minCapacity ").append(minCapacity)
+        .append(", growth ").append(growth)
+        .append(", hysteresis ").append(hysteresis).append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
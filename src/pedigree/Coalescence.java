@@ -0,0 +1,317 @@
+package pedigree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The class {@link Coalescence} traces the maternal or paternal lineages of a
+ * sample of {@link Sim}s back in time, from the youngest lineage to the
+ * oldest, until they coalesce into their most recent common ancestor or reach
+ * the founders. The tracing stops as soon as a single lineage remains, so its
+ * cost grows with the sample and the depth of its genealogy rather than with
+ * the whole population.
+ *
+ * <p>When the sample is drawn at random from a larger population, the
+ * confidence that its most recent common ancestor is also that of the whole
+ * population is reported following the neutral coalescent result of Saunders,
+ * Tavare and Watterson (1984), {@code (n - 1)(N + 1) / ((n + 1)(N - 1))} for
+ * a sample of {@code n} out of {@code N}.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Coalescence {
+    
+    // Anonymous inner type for comparing Sims using their birth dates
+    private static final Comparator<Sim> YOUNGEST_FIRST =
+        new Comparator<Sim>() {
+        
+        public int compare(Sim s1, Sim s2) {
+            
+            // The "youngest" people are those with the higher birth date
+            return -Double.compare(s1.getBirthTime(), s2.getBirthTime());
+        }
+    };
+    
+    private final Sim.Sex lineage; // Sex of the parents followed
+    private final int sampleSize;
+    private final int populationSize; // Size the sample was drawn from
+    private final double present;  // Time at which the sample was taken
+    
+    private double[] times;  // Coalescence times, most recent first
+    private int[] lineages;  // Lineages left after each coalescence
+    private int count;
+    
+    private Sim mrca; // Most recent common ancestor, null if not reached
+    
+    /**
+     * Initializes an empty record of the coalescences of a sample.
+     *
+     * @param lineage Sex of the parents followed
+     * @param sampleSize Number of {@link Sim}s sampled
+     * @param populationSize Number of {@link Sim}s the sample was drawn from
+     * @param present Time at which the sample was taken
+     */
+    
+    private Coalescence(Sim.Sex lineage, int sampleSize, int populationSize,
+        double present) {
+        
+        this.lineage = lineage;
+        this.sampleSize = sampleSize;
+        this.populationSize = Math.max(populationSize, sampleSize);
+        this.present = present;
+        
+        times = new double[Math.max(sampleSize - 1, 0)];
+        lineages = new int[times.length];
+    }
+    
+    /**
+     * Traces the lineages of the given {@link Sim}s back through the parents
+     * of the given sex, the {@link Sim}s making up the whole population.
+     *
+     * @param sample The {@link Sim}s, without duplicates
+     * @param lineage Sex of the parents followed, {@code F} for the maternal
+     * lineages and {@code M} for the paternal ones
+     * @param present Time at which the {@link Sim}s were taken
+     * @return The coalescences of the {@link Sim}s
+     */
+    
+    public static Coalescence trace(Collection<Sim> sample, Sim.Sex lineage,
+        double present) {
+        
+        return trace(sample, sample.size(), lineage, present);
+    }
+    
+    /**
+     * Traces the lineages of the given sample back through the parents of
+     * the given sex. A coalescence occurs whenever the parent of the youngest
+     * lineage already is the ancestor of another lineage.
+     *
+     * @param sample The sampled {@link Sim}s, without duplicates
+     * @param populationSize Number of {@link Sim}s the sample was drawn from
+     * @param lineage Sex of the parents followed, {@code F} for the maternal
+     * lineages and {@code M} for the paternal ones
+     * @param present Time at which the sample was taken
+     * @return The coalescences of the sample
+     */
+    
+    public static Coalescence trace(Collection<Sim> sample,
+        int populationSize, Sim.Sex lineage, double present) {
+        
+        Coalescence c = new Coalescence(lineage, sample.size(),
+        populationSize, present);
+        
+        if (sample.isEmpty()) {
+            
+            return c;
+        }
+        
+        MinPQ<Sim> subgroup = new MinPQ<Sim>(sample, YOUNGEST_FIRST);
+        Set<Sim> ancestors = new HashSet<Sim>(sample);
+        
+        // Stopping at the most recent common ancestor or at the founders
+        while (subgroup.size() > 1 && !subgroup.peek().isFounder()) {
+            
+            Sim youngest = subgroup.delMin();
+            Sim parent = Sim.Sex.F.equals(lineage) ?
+                youngest.getMother() : youngest.getFather();
+            
+            ancestors.remove(youngest);
+            
+            if (ancestors.add(parent)) {
+                
+                subgroup.insert(parent);
+            } else {
+                
+                c.add(youngest.getBirthTime(), subgroup.size());
+            }
+        }
+        
+        if (subgroup.size() == 1) {
+            
+            c.mrca = subgroup.peek();
+        }
+        
+        return c;
+    }
+    
+    /**
+     * Retrieves the sex of the parents followed.
+     *
+     * @return {@code F} for maternal lineages, {@code M} for paternal ones
+     */
+    
+    public Sim.Sex getLineage() {
+        
+        return lineage;
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s sampled.
+     *
+     * @return The sample size
+     */
+    
+    public int getSampleSize() {
+        
+        return sampleSize;
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s the sample was drawn from.
+     *
+     * @return The population size
+     */
+    
+    public int getPopulationSize() {
+        
+        return populationSize;
+    }
+    
+    /**
+     * Estimates the probability that the most recent common ancestor of the
+     * sample is also that of the population it was drawn from, under the
+     * neutral coalescent.
+     *
+     * @return The probability, 1 if the whole population was traced or NaN
+     * if the sample is empty
+     */
+    
+    public double getMrcaConfidence() {
+        
+        if (sampleSize == 0) {
+            
+            return Double.NaN;
+        }
+        
+        if (sampleSize >= populationSize) {
+            
+            return 1.0;
+        }
+        
+        double n = sampleSize;
+        double N = populationSize;
+        
+        return (n - 1) * (N + 1) / ((n + 1) * (N - 1));
+    }
+    
+    /**
+     * Retrieves the number of coalescences traced.
+     *
+     * @return The number of coalescences
+     */
+    
+    public int size() {
+        
+        return count;
+    }
+    
+    /**
+     * Retrieves the time of the coalescence at the given index, the most
+     * recent coalescence coming first.
+     *
+     * @param i Index of the coalescence
+     * @return The birth time of the lineage merging into another
+     */
+    
+    public double getTime(int i) {
+        
+        checkIndex(i);
+        return times[i];
+    }
+    
+    /**
+     * Retrieves the number of lineages left after the coalescence at the
+     * given index.
+     *
+     * @param i Index of the coalescence
+     * @return The number of lineages left
+     */
+    
+    public int getLineages(int i) {
+        
+        checkIndex(i);
+        return lineages[i];
+    }
+    
+    /**
+     * Retrieves the coalescence times, the most recent first.
+     *
+     * @return A copy of the coalescence times
+     */
+    
+    public double[] getTimes() {
+        
+        return Arrays.copyOf(times, count);
+    }
+    
+    /**
+     * Indicates whether the sample coalesced into a single ancestor before
+     * reaching the founders.
+     *
+     * @return <ul><li>{@code true} if the most recent common ancestor was
+     * found</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean isComplete() {
+        
+        return mrca != null;
+    }
+    
+    /**
+     * Retrieves the most recent common ancestor of the sample.
+     *
+     * @return The most recent common ancestor or null if the lineages reached
+     * the founders without coalescing
+     */
+    
+    public Sim getMrca() {
+        
+        return mrca;
+    }
+    
+    /**
+     * Retrieves the time to the most recent common ancestor, from the time
+     * the sample was taken back to the birth of the ancestor.
+     *
+     * @return The time to the most recent common ancestor or NaN if it was
+     * not found
+     */
+    
+    public double getTmrca() {
+        
+        return mrca == null ? Double.NaN : present - mrca.getBirthTime();
+    }
+    
+    /**
+     * Records a coalescence.
+     *
+     * @param time Birth time of the lineage merging into another
+     * @param left Number of lineages left
+     */
+    
+    private void add(double time, int left) {
+        
+        times[count] = time;
+        lineages[count++] = left;
+    }
+    
+    /**
+     * Checks that a coalescence index is within bounds.
+     *
+     * @param i Index of the coalescence
+     * @throws IndexOutOfBoundsException if there is no such coalescence
+     */
+    
+    private void checkIndex(int i) {
+        
+        if (i < 0 || i >= count) {
+            
+            throw new IndexOutOfBoundsException("Coalescence " + i);
+        }
+    }
+}
\ No newline at end of file
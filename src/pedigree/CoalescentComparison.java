@@ -0,0 +1,178 @@
+package pedigree;
+
+import java.io.PrintStream;
+
+/**
+ * The class {@link CoalescentComparison} checks the lineages drawn by a
+ * {@link CoalescentSimulation} against those traced by {@link Simulation}.
+ * Each run of {@link Simulation} is followed by a run of the coalescent with
+ * the same model, population growth and sample sizes, and the lineages of
+ * both are aggregated on a common time grid, so that their quantile bands
+ * can be set side by side.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class CoalescentComparison {
+    
+    static final int DEFAULT_POINTS = 21; // Grid times printed by default
+    
+    private final int founders;
+    private final double tMax;
+    private final ReplicateAggregator forward;  // Runs of Simulation
+    private final ReplicateAggregator backward; // Runs of the coalescent
+    private long forwardTime;  // Time spent by Simulation, in nanoseconds
+    private long backwardTime; // Time spent by the coalescent
+    
+    /**
+     * Initializes a comparison of runs from the given amount of founders
+     * over the given time, aggregated on the given number of grid times.
+     *
+     * @param founders Number of founding {@link Sim}s
+     * @param tMax Maximum time length of each simulation
+     * @param points Number of grid times
+     * @throws IllegalArgumentException if there are fewer than 2 grid times
+     * or if the maximum time is not positive
+     */
+    
+    public CoalescentComparison(int founders, double tMax, int points) {
+        
+        this.founders = founders;
+        this.tMax = tMax;
+        forward = new ReplicateAggregator(tMax, points);
+        backward = new ReplicateAggregator(tMax, points);
+    }
+    
+    /**
+     * Runs {@link Simulation} the given number of times, each run followed
+     * by a run of the coalescent seeded alike.
+     *
+     * @param runs Number of runs
+     */
+    
+    public void run(int runs) {
+        
+        for (int i = 0; i < runs; i++) {
+            
+            long start = System.nanoTime();
+            
+            Simulation.simulate(founders, tMax);
+            forwardTime += System.nanoTime() - start;
+            forward.addLastRun();
+            
+            if (Simulation.getPopGrowth().isEmpty()) {
+                
+                continue;
+            }
+            
+            start = System.nanoTime();
+            
+            CoalescentSimulation coalescent =
+                new CoalescentSimulation(Simulation.getModel());
+            
+            coalescent.simulate(Simulation.getPopGrowth(), tMax,
+            Simulation.getLineageF().getSampleSize(),
+            Simulation.getLineageM().getSampleSize(), Simulation.getSeed());
+            backwardTime += System.nanoTime() - start;
+            backward.addRun(Simulation.getPopGrowth(),
+            coalescent.getCoalescenceF(), coalescent.getCoalescenceM(),
+            Simulation.getLineageF().getSampleSize(),
+            Simulation.getLineageM().getSampleSize());
+        }
+    }
+    
+    /**
+     * Retrieves the aggregated runs of {@link Simulation}.
+     *
+     * @return The forward {@link ReplicateAggregator}
+     */
+    
+    public ReplicateAggregator getForward() {
+        
+        return forward;
+    }
+    
+    /**
+     * Retrieves the aggregated runs of the coalescent.
+     *
+     * @return The backward {@link ReplicateAggregator}
+     */
+    
+    public ReplicateAggregator getBackward() {
+        
+        return backward;
+    }
+    
+    /**
+     * Calculates the largest gap between the medians of the forward and
+     * backward runs of a series over the grid times where both are defined,
+     * relative to the forward median.
+     *
+     * @param series {@link Simulation#COALESCENCE_F} or
+     * {@link Simulation#COALESCENCE_M}
+     * @return The largest relative gap, 0 if no grid time is defined in both
+     */
+    
+    public double getMedianGap(String series) {
+        
+        return backward.getMedianGap(forward, series);
+    }
+    
+    /**
+     * Calculates how many times faster the coalescent ran than
+     * {@link Simulation}.
+     *
+     * @return The ratio of their running times
+     */
+    
+    public double getSpeedup() {
+        
+        return (double)forwardTime / Math.max(backwardTime, 1L);
+    }
+    
+    /**
+     * Prints the medians and the 5% and 95% quantiles of the lineages of both
+     * sexes at every grid time, forward then backward, followed by the
+     * largest gaps between the medians and the speedup.
+     *
+     * @param out The stream to print to
+     */
+    
+    public void print(PrintStream out) {
+        
+        double[] grid = forward.getGrid();
+        
+        out.println("time,series,forward5,forward50,forward95,"
+        + "backward5,backward50,backward95");
+        
+        for (String series : new String[] {Simulation.COALESCENCE_F,
+            Simulation.COALESCENCE_M}) {
+            
+            double[][] q = {forward.quantiles(series, 0.05),
+                forward.quantiles(series, 0.5),
+                forward.quantiles(series, 0.95),
+                backward.quantiles(series, 0.05),
+                backward.quantiles(series, 0.5),
+                backward.quantiles(series, 0.95)};
+            
+            for (int i = 0; i < grid.length; i++) {
+                
+                StringBuilder sb = new StringBuilder();
+                sb.append(grid[i]).append(',').append(series);
+                
+                for (double[] column : q) {
+                    
+                    sb.append(',').append(column[i]);
+                }
+                
+                out.println(sb);
+            }
+        }
+        
+        out.printf("# median gap %s %.3f, %s %.3f, speedup %.1f%n",
+        Simulation.COALESCENCE_F, getMedianGap(Simulation.COALESCENCE_F),
+        Simulation.COALESCENCE_M, getMedianGap(Simulation.COALESCENCE_M),
+        getSpeedup());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,305 @@
+package pedigree;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The class {@link CoalescentSimulation} draws the coalescences of a sample
+ * backward in time under the coalescent, without simulating the population
+ * forward. The lineages of each sex coalesce pairwise at a rate set by the
+ * effective population size of that sex, which is derived from the
+ * {@link AgeModel}: the generation time is the mean age of the parents, and
+ * the spread of the number of children of a newborn, who may die before or
+ * during their years of mating age, lowers the effective size below the
+ * number of newborns per generation. The population size may vary through
+ * time following the population growth of a {@link Simulation}, so that
+ * the lineages of a run can be compared with those drawn here. A run takes
+ * time proportional to the sample size and the number of population sizes.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class CoalescentSimulation {
+    
+    // Width of the age intervals over which the model is integrated
+    private static final double DX = 0.01;
+    
+    private final AgeModel model;
+    private final double lifespan;    // Life expectancy at birth
+    private final double generationF; // Mean age of the mothers
+    private final double generationM; // Mean age of the fathers
+    private final double efficiencyF; // Squared mean over second moment
+    private final double efficiencyM; // of the children of a newborn
+    
+    private Random rnd;
+    private long seed; // Seed of the last run
+    
+    // Maps for plotting
+    private Map<Double, Integer> coalescenceF;
+    private Map<Double, Integer> coalescenceM;
+    
+    /**
+     * Initializes a coalescent with the effective population sizes implied
+     * by the given model. Fathers are taken to be drawn uniformly among the
+     * males of mating age, whose children thus follow the time they spend at
+     * mating age.
+     *
+     * @param model The {@link AgeModel} giving the survival and fertility
+     */
+    
+    public CoalescentSimulation(AgeModel model) {
+        
+        this.model = model;
+        
+        double poissonProc = model
+        .getPoissonPointProcess(Sim.MIN_MATING_AGE_F, Sim.MAX_MATING_AGE_F);
+        double lived = 0.0;
+        double mothers = 0.0;   // Births, then summed ages at birth
+        double motherAge = 0.0;
+        double fathers = 0.0;   // Years at mating age, then summed ages
+        double fatherAge = 0.0;
+        
+        // Expected children by age at death and their moments over the
+        // lifespan, daughters of a female and mating years of a male
+        double daughters = 0.0;
+        double years = 0.0;
+        double[] f = new double[2];
+        double[] m = new double[2];
+        
+        for (double x = 0.0; x < CohortSimulation.MAX_AGE; x += DX) {
+            
+            double age = x + DX / 2.0;
+            double alive = model.getSurvival(age) * DX;
+            double dying = model.getSurvival(x) - model.getSurvival(x + DX);
+            
+            lived += alive;
+            
+            if (age >= Sim.MIN_MATING_AGE_F && age <= Sim.MAX_MATING_AGE_F) {
+                
+                double births = poissonProc * model.getFertility(age) * alive;
+                
+                mothers += births;
+                motherAge += age * births;
+                daughters += 0.5 * poissonProc * model.getFertility(age) * DX;
+            }
+            
+            if (age >= Sim.MIN_MATING_AGE_M && age <= Sim.MAX_MATING_AGE_M) {
+                
+                fathers += alive;
+                fatherAge += age * alive;
+                years += DX;
+            }
+            
+            f[0] += dying * daughters;
+            f[1] += dying * daughters * daughters;
+            m[0] += dying * years;
+            m[1] += dying * years * years;
+        }
+        
+        lifespan = lived;
+        generationF = motherAge / mothers;
+        generationM = fatherAge / fathers;
+        efficiencyF = f[0] * f[0] / f[1];
+        efficiencyM = m[0] * m[0] / m[1];
+    }
+    
+    /**
+     * Retrieves the model of this coalescent.
+     *
+     * @return The {@link AgeModel}
+     */
+    
+    public AgeModel getModel() {
+        
+        return model;
+    }
+    
+    /**
+     * Retrieves the seed of the last run.
+     *
+     * @return The seed
+     */
+    
+    public long getSeed() {
+        
+        return seed;
+    }
+    
+    /**
+     * Retrieves the generation time of the lineages of the given sex, the
+     * mean age of the mothers or of the fathers at the birth of a child.
+     *
+     * @param sex {@code F} for the maternal lineages and {@code M} for the
+     * paternal ones
+     * @return The generation time, in years
+     */
+    
+    public double getGenerationTime(Sim.Sex sex) {
+        
+        return Sim.Sex.F.equals(sex) ? generationF : generationM;
+    }
+    
+    /**
+     * Calculates the effective population size of the lineages of the given
+     * sex in a population of the given size. Half of the {@link Sim}s being
+     * of either sex and as many being born over a lifespan, the newborns of
+     * that sex over a generation are scaled down by the ratio of the squared
+     * mean to the second moment of the children of a newborn.
+     *
+     * @param sex {@code F} for the maternal lineages and {@code M} for the
+     * paternal ones
+     * @param populationSize Number of {@link Sim}s alive
+     * @return The effective number of parents of that sex per generation
+     */
+    
+    public double getEffectiveSize(Sim.Sex sex, int populationSize) {
+        
+        return Sim.Sex.F.equals(sex) ?
+            populationSize / 2.0 * generationF / lifespan * efficiencyF :
+            populationSize / 2.0 * generationM / lifespan * efficiencyM;
+    }
+    
+    /**
+     * Retrieves the female coalescence of the last run.
+     *
+     * @return The associated {@link Map}
+     */
+    
+    public Map<Double, Integer> getCoalescenceF() {
+        
+        return coalescenceF;
+    }
+    
+    /**
+     * Retrieves the male coalescence of the last run.
+     *
+     * @return The associated {@link Map}
+     */
+    
+    public Map<Double, Integer> getCoalescenceM() {
+        
+        return coalescenceM;
+    }
+    
+    /**
+     * Draws the coalescences of samples of each sex taken at the given time
+     * in a population of constant size, founded at time 0.
+     *
+     * @param populationSize Number of {@link Sim}s alive
+     * @param present Time at which the samples are taken
+     * @param sampleF Number of sampled females
+     * @param sampleM Number of sampled males
+     * @param seed Seed of the pseudorandom number generator
+     */
+    
+    public void simulate(int populationSize, double present, int sampleF,
+        int sampleM, long seed) {
+        
+        Map<Double, Integer> popGrowth = new TreeMap<Double, Integer>();
+        
+        popGrowth.put(0.0, populationSize);
+        simulate(popGrowth, present, sampleF, sampleM, seed);
+    }
+    
+    /**
+     * Draws the coalescences of samples of each sex taken at the given time
+     * in a population founded at time 0 and of varying size. Each population
+     * size holds from the time it was recorded until the next record, the
+     * first one holding since the founding. The lineages left at the
+     * founding are those recorded at the earliest coalescence, as by
+     * {@link Simulation}.
+     *
+     * @param popGrowth Population size by time, sorted by ascending time as
+     * by {@link Simulation#getPopGrowth()}
+     * @param present Time at which the samples are taken
+     * @param sampleF Number of sampled females
+     * @param sampleM Number of sampled males
+     * @param seed Seed of the pseudorandom number generator
+     * @throws IllegalArgumentException if the population growth is empty
+     */
+    
+    public void simulate(Map<Double, Integer> popGrowth, double present,
+        int sampleF, int sampleM, long seed) {
+        
+        if (popGrowth.isEmpty()) {
+            
+            throw new IllegalArgumentException("No population size");
+        }
+        
+        double[] times = new double[popGrowth.size()];
+        int[] sizes = new int[popGrowth.size()];
+        int i = 0;
+        
+        for (Map.Entry<Double, Integer> e : popGrowth.entrySet()) {
+            
+            times[i] = e.getKey();
+            sizes[i] = e.getValue();
+            i++;
+        }
+        
+        this.seed = seed;
+        rnd = new Random(seed);
+        coalescenceF = new TreeMap<Double, Integer>();
+        coalescenceM = new TreeMap<Double, Integer>();
+        
+        trace(Sim.Sex.F, sampleF, times, sizes, present, coalescenceF);
+        trace(Sim.Sex.M, sampleM, times, sizes, present, coalescenceM);
+    }
+    
+    /**
+     * Draws the coalescences of a sample back to a single lineage or to the
+     * founding. The time to the next coalescence is drawn by accumulating
+     * the pairwise rate of the lineages over the population sizes met going
+     * back until an exponential draw is reached, so that each coalescence
+     * and each population size is visited once.
+     *
+     * @param sex Sex of the parents followed
+     * @param n Sample size
+     * @param times Times of the population sizes, in ascending order
+     * @param sizes Population sizes
+     * @param present Time at which the sample is taken
+     * @param coalescence The Map for holding the value pairs to plot
+     */
+    
+    private void trace(Sim.Sex sex, int n, double[] times, int[] sizes,
+        double present, Map<Double, Integer> coalescence) {
+        
+        double generation = getGenerationTime(sex);
+        double time = present;
+        int j = times.length - 1; // Population size in effect
+        int k = n;
+        
+        while (j > 0 && times[j] > time) {
+            
+            j--;
+        }
+        
+        while (k > 1 && time > 0.0) {
+            
+            double pairs = k * (k - 1) / 2.0;
+            double hazard = -Math.log(rnd.nextDouble());
+            
+            // Going back through the population sizes until the hazard
+            while (time > 0.0) {
+                
+                double start = j > 0 ? Math.max(times[j], 0.0) : 0.0;
+                double size = getEffectiveSize(sex, Math.max(sizes[j], 1));
+                double rate = pairs / (size * generation);
+                
+                if (rate * (time - start) >= hazard) {
+                    
+                    time -= hazard / rate;
+                    k--;
+                    coalescence.put(time, k);
+                    break;
+                }
+                
+                hazard -= rate * (time - start);
+                time = start;
+                j = Math.max(j - 1, 0);
+            }
+        }
+    }
+}
\ No newline at end of file
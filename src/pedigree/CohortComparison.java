@@ -0,0 +1,170 @@
+package pedigree;
+
+import java.io.PrintStream;
+
+/**
+ * The class {@link CohortComparison} checks the runs of a
+ * {@link CohortSimulation} against those of {@link Simulation}. Each run of
+ * {@link Simulation} is followed by a run of the cohort engine with the same
+ * model, carrying capacity, founders, length and seed, and the population
+ * sizes and lineages of both are aggregated on a common time grid, so that
+ * their quantile bands and running times can be set side by side.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class CohortComparison {
+    
+    static final int DEFAULT_POINTS = 21; // Grid times printed by default
+    
+    private final int founders;
+    private final double tMax;
+    private final ReplicateAggregator events;  // Runs of Simulation
+    private final ReplicateAggregator cohorts; // Runs of the cohort engine
+    private long eventTime;  // Time spent by Simulation, in nanoseconds
+    private long cohortTime; // Time spent by the cohort engine
+    
+    /**
+     * Initializes a comparison of runs from the given amount of founders
+     * over the given time, aggregated on the given number of grid times.
+     *
+     * @param founders Number of founding {@link Sim}s
+     * @param tMax Maximum time length of each simulation
+     * @param points Number of grid times
+     * @throws IllegalArgumentException if there are fewer than 2 grid times
+     * or if the maximum time is not positive
+     */
+    
+    public CohortComparison(int founders, double tMax, int points) {
+        
+        this.founders = founders;
+        this.tMax = tMax;
+        events = new ReplicateAggregator(tMax, points);
+        cohorts = new ReplicateAggregator(tMax, points);
+    }
+    
+    /**
+     * Runs {@link Simulation} the given number of times, each run followed
+     * by a yearly run of the cohort engine seeded alike.
+     *
+     * @param runs Number of runs
+     */
+    
+    public void run(int runs) {
+        
+        for (int i = 0; i < runs; i++) {
+            
+            long start = System.nanoTime();
+            
+            Simulation.simulate(founders, tMax);
+            eventTime += System.nanoTime() - start;
+            events.addLastRun();
+            
+            start = System.nanoTime();
+            
+            CohortSimulation cohort = new CohortSimulation(
+            Simulation.getModel(), CohortSimulation.DEFAULT_STEP,
+            Simulation.getCarryingCapacity());
+            
+            cohort.simulate(founders, tMax, Simulation.getSeed());
+            cohortTime += System.nanoTime() - start;
+            cohorts.addRun(cohort.getPopGrowth(), cohort.getCoalescenceF(),
+            cohort.getCoalescenceM(), cohort.getSampleSize(Sim.Sex.F),
+            cohort.getSampleSize(Sim.Sex.M));
+        }
+    }
+    
+    /**
+     * Retrieves the aggregated runs of {@link Simulation}.
+     *
+     * @return The {@link ReplicateAggregator} of the event-driven runs
+     */
+    
+    public ReplicateAggregator getEvents() {
+        
+        return events;
+    }
+    
+    /**
+     * Retrieves the aggregated runs of the cohort engine.
+     *
+     * @return The {@link ReplicateAggregator} of the cohort runs
+     */
+    
+    public ReplicateAggregator getCohorts() {
+        
+        return cohorts;
+    }
+    
+    /**
+     * Calculates the largest gap between the medians of the runs of both
+     * engines for a series, relative to the median of {@link Simulation}.
+     *
+     * @param series {@link Simulation#POP_GROWTH},
+     * {@link Simulation#COALESCENCE_F} or {@link Simulation#COALESCENCE_M}
+     * @return The largest relative gap, 0 if no grid time is defined in both
+     */
+    
+    public double getMedianGap(String series) {
+        
+        return cohorts.getMedianGap(events, series);
+    }
+    
+    /**
+     * Calculates how many times faster the cohort engine ran than
+     * {@link Simulation}.
+     *
+     * @return The ratio of their running times
+     */
+    
+    public double getSpeedup() {
+        
+        return (double)eventTime / Math.max(cohortTime, 1L);
+    }
+    
+    /**
+     * Prints the medians and the 5% and 95% quantiles of every series at
+     * every grid time, for {@link Simulation} then for the cohort engine,
+     * followed by the largest gaps between the medians and the speedup.
+     *
+     * @param out The stream to print to
+     */
+    
+    public void print(PrintStream out) {
+        
+        double[] grid = events.getGrid();
+        
+        out.println("time,series,events5,events50,events95,"
+        + "cohorts5,cohorts50,cohorts95");
+        
+        for (String series : events.getSeries()) {
+            
+            double[][] q = {events.quantiles(series, 0.05),
+                events.quantiles(series, 0.5),
+                events.quantiles(series, 0.95),
+                cohorts.quantiles(series, 0.05),
+                cohorts.quantiles(series, 0.5),
+                cohorts.quantiles(series, 0.95)};
+            
+            for (int i = 0; i < grid.length; i++) {
+                
+                StringBuilder sb = new StringBuilder();
+                sb.append(grid[i]).append(',').append(series);
+                
+                for (double[] column : q) {
+                    
+                    sb.append(',').append(column[i]);
+                }
+                
+                out.println(sb);
+            }
+        }
+        
+        out.printf("# median gap %s %.3f, %s %.3f, %s %.3f, speedup %.1f%n",
+        Simulation.POP_GROWTH, getMedianGap(Simulation.POP_GROWTH),
+        Simulation.COALESCENCE_F, getMedianGap(Simulation.COALESCENCE_F),
+        Simulation.COALESCENCE_M, getMedianGap(Simulation.COALESCENCE_M),
+        getSpeedup());
+    }
+}
\ No newline at end of file
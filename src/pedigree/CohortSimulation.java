@@ -0,0 +1,582 @@
+package pedigree;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * The class {@link CohortSimulation} approximates a run of
+ * {@link Simulation} in discrete time. Instead of following each
+ * {@link Sim} through its {@link Event}s, it keeps the number of females and
+ * males in each age class and advances them one step at a time, drawing the
+ * survivors of each class from a binomial distribution and the births of
+ * each step from a Poisson distribution, with the rates of the same
+ * {@link AgeModel}. Ancestry is recovered afterwards by tracing the sampled
+ * lineages back through the recorded age classes, a parent being drawn among
+ * the members of the classes which could have given birth. The run yields
+ * the population growth and the coalescences in the same form as
+ * {@link Simulation}, in a time which depends on the number of steps and age
+ * classes rather than on the size of the population.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class CohortSimulation {
+    
+    // Default width of the steps and age classes, in years
+    public static final double DEFAULT_STEP = 1.0;
+    
+    // Oldest age considered, beyond which no Sim survives
+    static final double MAX_AGE = 150.0;
+    
+    // Points at which the rates are averaged over an age class
+    private static final int POINTS = 8;
+    
+    // Mean above which binomial and Poisson draws are approximated normally
+    private static final double NORMAL_MEAN = 32.0;
+    
+    private final AgeModel model;
+    private final double step;     // Width of the steps and age classes
+    private final int capacity;    // Carrying capacity, 0 if unregulated
+    private final int classes;     // Number of age classes
+    private final double[] survival;  // Chance to reach the next age class
+    private final double[] fertility; // Births per female over a step
+    private final double[] mating;    // Share of a male class of mating age
+    private final double newborn;     // Chance to be counted after birth
+    
+    private Random rnd;
+    private long seed;    // Seed of the last run
+    private int steps;    // Steps completed during the last run
+    private List<int[]> females; // Females by age class after each step
+    private List<int[]> males;   // Males by age class after each step
+    
+    // Maps for plotting
+    private Map<Double, Integer> popGrowth;
+    private Map<Double, Integer> coalescenceF;
+    private Map<Double, Integer> coalescenceM;
+    
+    /**
+     * Initializes an unregulated yearly simulation of the given model.
+     *
+     * @param model The {@link AgeModel} giving the survival and fertility
+     */
+    
+    public CohortSimulation(AgeModel model) {
+        
+        this(model, DEFAULT_STEP, 0);
+    }
+    
+    /**
+     * Initializes a simulation of the given model advancing by steps of the
+     * given width, a step of a year being the finest and one of a
+     * generation the coarsest sensible choice.
+     *
+     * @param model The {@link AgeModel} giving the survival and fertility
+     * @param step Width of the steps and age classes, in years
+     * @param capacity Carrying capacity regulating fertility as in
+     * {@link Simulation#setCarryingCapacity(int)}, 0 if unregulated
+     * @throws IllegalArgumentException if the step is not positive or if the
+     * capacity is negative
+     */
+    
+    public CohortSimulation(AgeModel model, double step, int capacity) {
+        
+        if (!(step > 0.0)) {
+            
+            throw new IllegalArgumentException("Step must be positive");
+        }
+        
+        if (capacity < 0) {
+            
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        
+        this.model = model;
+        this.step = step;
+        this.capacity = capacity;
+        classes = (int)Math.ceil(MAX_AGE / step);
+        survival = new double[classes];
+        fertility = new double[classes];
+        mating = new double[classes];
+        
+        double poissonProc = model
+        .getPoissonPointProcess(Sim.MIN_MATING_AGE_F, Sim.MAX_MATING_AGE_F);
+        double[] lived = new double[classes + 1]; // Years lived in each class
+        
+        for (int a = 0; a < classes; a++) {
+            
+            // Rates integrated at the midpoints of equal parts of the class
+            for (int i = 0; i < POINTS; i++) {
+                
+                double age = (a + (i + 0.5) / POINTS) * step;
+                double alive = model.getSurvival(age) * step / POINTS;
+                
+                lived[a] += alive;
+                
+                if (age >= Sim.MIN_MATING_AGE_F
+                    && age <= Sim.MAX_MATING_AGE_F) {
+                    
+                    fertility[a] += poissonProc * model.getFertility(age)
+                    * alive;
+                }
+                
+                if (age >= Sim.MIN_MATING_AGE_M
+                    && age <= Sim.MAX_MATING_AGE_M) {
+                    
+                    mating[a] += 1.0 / POINTS;
+                }
+            }
+        }
+        
+        // Survival from class to class, then births per female of each class
+        // over a step, averaged between her class and the next one as she
+        // moves from one to the other during the step
+        for (int a = 0; a < classes; a++) {
+            
+            survival[a] = lived[a] > 0.0 ? lived[a + 1] / lived[a] : 0.0;
+            fertility[a] = lived[a] > 0.0 ? fertility[a] / lived[a] : 0.0;
+        }
+        
+        for (int a = 0; a < classes; a++) {
+            
+            double next = a + 1 < classes ? fertility[a + 1] : 0.0;
+            
+            fertility[a] = (fertility[a] + survival[a] * next) / 2.0 * step;
+        }
+        
+        newborn = lived[0] / step;
+    }
+    
+    /**
+     * Retrieves the model of this simulation.
+     *
+     * @return The {@link AgeModel}
+     */
+    
+    public AgeModel getModel() {
+        
+        return model;
+    }
+    
+    /**
+     * Retrieves the width of the steps and age classes.
+     *
+     * @return The step, in years
+     */
+    
+    public double getStep() {
+        
+        return step;
+    }
+    
+    /**
+     * Retrieves the seed of the last run.
+     *
+     * @return The seed
+     */
+    
+    public long getSeed() {
+        
+        return seed;
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s alive at the end of the last run.
+     *
+     * @return The population size
+     */
+    
+    public int getPopulationSize() {
+        
+        return sum(females.get(steps)) + sum(males.get(steps));
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s of the given sex whose lineages
+     * were traced in the last run, all those alive at the end.
+     *
+     * @param sex {@code F} for the maternal lineages and {@code M} for the
+     * paternal ones
+     * @return The sample size
+     */
+    
+    public int getSampleSize(Sim.Sex sex) {
+        
+        return sum((Sim.Sex.F.equals(sex) ? females : males).get(steps));
+    }
+    
+    /**
+     * Retrieves the population growth of the last run.
+     *
+     * @return The associated {@link Map}
+     */
+    
+    public Map<Double, Integer> getPopGrowth() {
+        
+        return popGrowth;
+    }
+    
+    /**
+     * Retrieves the female coalescence of the last run.
+     *
+     * @return The associated {@link Map}
+     */
+    
+    public Map<Double, Integer> getCoalescenceF() {
+        
+        return coalescenceF;
+    }
+    
+    /**
+     * Retrieves the male coalescence of the last run.
+     *
+     * @return The associated {@link Map}
+     */
+    
+    public Map<Double, Integer> getCoalescenceM() {
+        
+        return coalescenceM;
+    }
+    
+    /**
+     * Simulates the given amount of founders, born at time 0, over the given
+     * time with a random seed.
+     *
+     * @param n Number of founding {@link Sim}s
+     * @param tMax Maximum time length of simulation
+     */
+    
+    public void simulate(int n, double tMax) {
+        
+        simulate(n, tMax, new Random().nextLong());
+    }
+    
+    /**
+     * Simulates the given amount of founders, born at time 0, over the given
+     * time. The run ends early if the population dies out. The population
+     * size is sampled every hundred years at the end of the first window of
+     * {@link Simulation} reaching each period, as it is there, and the
+     * lineages of all the females and all the males alive at the end are
+     * traced back.
+     *
+     * @param n Number of founding {@link Sim}s
+     * @param tMax Maximum time length of simulation
+     * @param seed Seed of the pseudorandom number generator
+     */
+    
+    public void simulate(int n, double tMax, long seed) {
+        
+        int interval = 100; // Time intervals at which population size sampled
+        int period = 0;     // Time period for sampling population size
+        
+        this.seed = seed;
+        rnd = new Random(seed);
+        females = new ArrayList<int[]>();
+        males = new ArrayList<int[]>();
+        popGrowth = new TreeMap<Double, Integer>();
+        coalescenceF = new TreeMap<Double, Integer>();
+        coalescenceM = new TreeMap<Double, Integer>();
+        
+        int[] f = new int[classes];
+        int[] m = new int[classes];
+        
+        f[0] = binomial(n, 0.5);
+        m[0] = n - f[0];
+        females.add(f);
+        males.add(m);
+        steps = 0;
+        
+        int size = n;
+        
+        while (steps * step < tMax && size > 0) {
+            
+            double births = 0.0;
+            
+            // Births need a male of mating age to father them
+            if (weigh(m, mating) != null) {
+                
+                double[] w = weigh(f, fertility);
+                
+                for (int a = 0; w != null && a < classes; a++) {
+                    
+                    births += w[a];
+                }
+                
+                births *= capacity > 0 ?
+                    2.0 / (1.0 + (double)size / capacity) : 1.0;
+            }
+            
+            int[] nf = new int[classes];
+            int[] nm = new int[classes];
+            
+            for (int a = 0; a < classes - 1; a++) {
+                
+                nf[a + 1] = binomial(f[a], survival[a]);
+                nm[a + 1] = binomial(m[a], survival[a]);
+            }
+            
+            int born = binomial(poisson(births), newborn);
+            
+            nf[0] = binomial(born, 0.5);
+            nm[0] = born - nf[0];
+            f = nf;
+            m = nm;
+            females.add(f);
+            males.add(m);
+            steps++;
+            size = sum(f) + sum(m);
+            
+            double time = steps * step;
+            
+            // Sampled at the end of the window of Simulation reaching the
+            // period, or at the end of the run
+            double window = Math.max(Math.ceil(period
+            / Simulation.DEFAULT_WINDOW), 1.0) * Simulation.DEFAULT_WINDOW;
+            
+            if (time >= Math.min(window, tMax)) {
+                
+                popGrowth.put(time, size);
+                period += interval;
+            }
+        }
+        
+        // A population which died out ends on a size of 0
+        if (size == 0 && !popGrowth.containsKey(steps * step)) {
+            
+            popGrowth.put(steps * step, 0);
+        }
+        
+        trace(females, fertility, coalescenceF);
+        trace(males, mating, coalescenceM);
+    }
+    
+    /**
+     * Traces back the lineages of all the {@link Sim}s of one sex alive at
+     * the end of the last run and records the coalescences as
+     * {@link Simulation} does, keyed by the birth time of the child whose
+     * parent was already an ancestor. A {@link Sim} is identified by the step
+     * at which it joined the first age class and by a label among those born
+     * in that step, the survivors of a cohort being those with the lowest
+     * labels. Its parent is drawn among the {@link Sim}s alive the step
+     * before its birth, each class weighted by its fertility or share of
+     * mating age.
+     *
+     * @param parents Counts by age class of the sex of the parents
+     * @param rate Weight of a parent of each age class
+     * @param coalescence The Map for holding the value pairs to plot
+     */
+    
+    private void trace(List<int[]> parents, double[] rate,
+        Map<Double, Integer> coalescence) {
+        
+        // Lineages by cohort, the sample being the last counts of the sex
+        List<BitSet> lineages = new ArrayList<BitSet>(steps + 1);
+        int[] traced = new int[steps + 1]; // Lineages of each cohort
+        int[] last = parents.get(steps);
+        int left = 0;
+        
+        for (int c = 0; c <= steps; c++) {
+            
+            lineages.add(null);
+        }
+        
+        for (int a = 0; a < classes && a <= steps; a++) {
+            
+            cohort(lineages, steps - a).set(0, last[a]);
+            traced[steps - a] = last[a];
+            left += last[a];
+        }
+        
+        // Youngest cohorts first, stopping at the founders or at one lineage
+        for (int c = steps; c > 0 && left > 1; c--) {
+            
+            if (traced[c] == 0) {
+                
+                continue;
+            }
+            
+            int[] counts = parents.get(c - 1);
+            AliasTable table = new AliasTable(weigh(counts, rate));
+            
+            int before = left;
+            
+            for (int i = 0; i < traced[c] && left > 1; i++) {
+                
+                int a = table.sample(rnd);
+                int label = rnd.nextInt(counts[a]);
+                BitSet parent = cohort(lineages, c - 1 - a);
+                
+                if (parent.get(label)) {
+                    
+                    left--;
+                } else {
+                    
+                    parent.set(label);
+                    traced[c - 1 - a]++;
+                }
+            }
+            
+            if (left < before) {
+                
+                coalescence.put(c * step, left);
+            }
+            
+            lineages.set(c, null);
+        }
+    }
+    
+    /**
+     * Retrieves the lineages of the given cohort, adding an empty set if
+     * none was traced yet.
+     *
+     * @param lineages Lineages by cohort
+     * @param c The cohort
+     * @return The labels of its traced {@link Sim}s
+     */
+    
+    private static BitSet cohort(List<BitSet> lineages, int c) {
+        
+        BitSet cohort = lineages.get(c);
+        
+        if (cohort == null) {
+            
+            cohort = new BitSet();
+            lineages.set(c, cohort);
+        }
+        
+        return cohort;
+    }
+    
+    /**
+     * Weighs the age classes by their counts times the given rates.
+     *
+     * @param counts Counts by age class
+     * @param rate Rate of each age class
+     * @return The weights or null if they are all zero
+     */
+    
+    private double[] weigh(int[] counts, double[] rate) {
+        
+        double[] w = new double[classes];
+        boolean any = false;
+        
+        for (int a = 0; a < classes; a++) {
+            
+            w[a] = counts[a] * rate[a];
+            any |= w[a] > 0.0;
+        }
+        
+        return any ? w : null;
+    }
+    
+    /**
+     * Sums the counts of the age classes.
+     *
+     * @param counts Counts by age class
+     * @return The total
+     */
+    
+    private static int sum(int[] counts) {
+        
+        int total = 0;
+        
+        for (int k : counts) {
+            
+            total += k;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Draws a binomially distributed count, by inversion when few successes
+     * or failures are expected and from the normal approximation otherwise.
+     *
+     * @param n Number of trials
+     * @param p Chance of success
+     * @return Binomial(n, p)
+     */
+    
+    private int binomial(int n, double p) {
+        
+        if (n == 0 || p <= 0.0) {
+            
+            return 0;
+        }
+        
+        if (p >= 1.0) {
+            
+            return n;
+        }
+        
+        if (p > 0.5) {
+            
+            return n - binomial(n, 1.0 - p);
+        }
+        
+        double mean = n * p;
+        
+        if (mean >= NORMAL_MEAN) {
+            
+            long k = Math.round(mean
+            + Math.sqrt(mean * (1.0 - p)) * rnd.nextGaussian());
+            
+            return (int)Math.max(0, Math.min(n, k));
+        }
+        
+        // Walking up the distribution function from the chance of none
+        double odds = p / (1.0 - p);
+        double pk = Math.pow(1.0 - p, n);
+        double u = rnd.nextDouble();
+        int k = 0;
+        
+        while (u > pk && k < n) {
+            
+            u -= pk;
+            k++;
+            pk *= odds * (n - k + 1) / k;
+        }
+        
+        return k;
+    }
+    
+    /**
+     * Draws a Poisson distributed count, by inversion for a small mean and
+     * from the normal approximation otherwise.
+     *
+     * @param mean Expected count
+     * @return Poisson(mean)
+     */
+    
+    private int poisson(double mean) {
+        
+        if (!(mean > 0.0)) {
+            
+            return 0;
+        }
+        
+        if (mean >= NORMAL_MEAN) {
+            
+            long k = Math.round(mean + Math.sqrt(mean) * rnd.nextGaussian());
+            
+            return (int)Math.max(0, Math.min(Integer.MAX_VALUE, k));
+        }
+        
+        double pk = Math.exp(-mean);
+        double u = rnd.nextDouble();
+        int k = 0;
+        
+        while (u > pk && pk > 0.0) {
+            
+            u -= pk;
+            k++;
+            pk *= mean / k;
+        }
+        
+        return k;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package pedigree;
+
+/**
+ * The class {@link Decimator} downsamples series of value pairs for display
+ * with the Largest-Triangle-Three-Buckets algorithm, which keeps the points
+ * contributing the most to the visual shape of the series.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Decimator {
+    
+    /**
+     * Selects at most the given number of value pairs among those between the
+     * given indeces. The first and last value pairs are always kept and the
+     * others are split into equal buckets, each contributing the value pair
+     * forming the largest triangle with the value pairs kept in the buckets
+     * surrounding it.
+     *
+     * @param x The {@code x} values, sorted in ascending order
+     * @param y The {@code y} values
+     * @param from Index of the first value pair to consider
+     * @param to Index following the last value pair to consider
+     * @param threshold Maximum number of value pairs to keep
+     * @return The indeces of the value pairs kept, in ascending order
+     * @throws IllegalArgumentException if the threshold is below 3
+     */
+    
+    public static int[] lttb(double[] x, double[] y, int from, int to,
+        int threshold) {
+        
+        int n = to - from;
+        
+        if (threshold < 3) {
+            
+            throw new IllegalArgumentException("Threshold below 3");
+        }
+        
+        if (threshold >= n) {
+            
+            int[] all = new int[n];
+            
+            for (int i = 0; i < n; i++) {
+                
+                all[i] = from + i;
+            }
+            
+            return all;
+        }
+        
+        int[] kept = new int[threshold];
+        int k = 0;
+        
+        // Buckets exclude the first and last value pairs
+        double bucketSize = (double)(n - 2) / (threshold - 2);
+        int a = from;
+        
+        kept[k++] = a;
+        
+        for (int b = 0; b < threshold - 2; b++) {
+            
+            int start = from + 1 + (int)(b * bucketSize);
+            int end = from + 1 + (int)((b + 1) * bucketSize);
+            
+            // Average of the next bucket, or the last value pair
+            int nextStart = end;
+            int nextEnd = Math.min(from + 1 + (int)((b + 2) * bucketSize),
+                to - 1);
+            
+            double avgX = 0.0;
+            double avgY = 0.0;
+            
+            if (nextStart >= nextEnd) {
+                
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            } else {
+                
+                for (int i = nextStart; i < nextEnd; i++) {
+                    
+                    avgX += x[i];
+                    avgY += y[i];
+                }
+                
+                avgX /= nextEnd - nextStart;
+                avgY /= nextEnd - nextStart;
+            }
+            
+            double maxArea = -1.0;
+            int chosen = start;
+            
+            for (int i = start; i < end; i++) {
+                
+                // Twice the triangle area, the factor being irrelevant
+                double area = Math.abs((x[a] - avgX) * (y[i] - y[a])
+                    - (x[a] - x[i]) * (avgY - y[a]));
+                
+                if (area > maxArea) {
+                    
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            
+            kept[k++] = chosen;
+            a = chosen;
+        }
+        
+        kept[k] = to - 1;
+        
+        return kept;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,1047 @@
+package pedigree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The class {@link Deme} defines a panmictic subpopulation of {@link Sim}s
+ * with its own {@link Event} queue. Mates are only drawn from within the
+ * {@link Deme}, which allows separate {@link Deme}s to advance their
+ * {@link Event}s concurrently up to a common time window. {@link Sim}s
+ * undergoing a {@link Migration} remain in the {@link Deme} until the window
+ * closes and are then handed to their destination {@link Deme}.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Deme {
+    
+    // Candidates drawn at most per mate search when rejecting relatives
+    static final int MAX_MATE_DRAWS = 32;
+    
+    // Time span of consecutive Births applied as a single batch
+    static final double BATCH_WINDOW = 1.0;
+    
+    private AgeModel model;         // Model in effect
+    private final double peakRate;  // Rate at which Reproductions are drawn
+    private double rateShare;       // Share of them kept at the rate in effect
+    private double capacity;        // Carrying capacity, 0 if unregulated
+    private final double migrationRate;
+    private final Random rnd;
+    
+    // Relatedness of mates, the Kinship being null if neither is tracked
+    private final Kinship kinship;
+    private final int exclusionDegree; // Closest degree allowed, 0 for any
+    private final boolean trackInbreeding;
+    private double inbreedingSum; // Inbreeding coefficients of the births
+    private long births;          // Births conceived in this Deme
+    private long rejected;        // Candidate mates rejected as relatives
+    
+    private EventQueue eventQ;        // Events keyed by time
+    private List<Sim> populationList; // Index of the living Sims
+    private MatePool pool;            // Index of the males of mating age
+    private MateChoice mateChoice;    // How a mother picks among the males
+    private long searchesCut; // Mate searches ended by the bound on draws
+    private List<Sim> emigrants; // Sims leaving when current window closes
+    private long processed;      // Events applied so far
+    private long chainsCut;      // Reproduction chains ended before death
+    private boolean batching;    // Whether a batch of Births is being applied
+    private double batchEnd;     // Time bound of the current batch
+    
+    // Events drawn by the current batch of Births, reused by every batch
+    private final List<Event> batch = new ArrayList<Event>();
+    
+    // Partnerships formed in this Deme and their outcome
+    private long partnerships;  // Partnerships formed
+    private long breakups;      // Partnerships ended by a partner leaving
+    private long halfSibBirths; // Births with an older half-sibling
+    private List<Partnership> history; // Partnerships formed, null if not kept
+    
+    /**
+     * Initializes an empty {@link Deme} following the given model.
+     *
+     * @param model The {@link AgeModel} ruling lifespans, fertility and
+     * loyalty
+     * @param poissonProc The Poisson Point Process rate for reproduction
+     * @param peakRate The rate at which {@link Reproduction}s are drawn, at
+     * least the Poisson Point Process rate of every model followed
+     * @param migrationRate The yearly rate at which each {@link Sim} leaves
+     * this {@link Deme}, 0 for a closed {@link Deme}
+     * @param exclusionDegree Degree of relationship within which candidate
+     * mates are rejected, 0 to accept relatives
+     * @param kinshipDepth Number of meioses followed to compute the
+     * inbreeding coefficient of each birth, 0 not to compute it
+     * @param seed Seed of this {@link Deme}'s random number generator
+     */
+    
+    public Deme(AgeModel model, double poissonProc, double peakRate,
+        double migrationRate, int exclusionDegree, int kinshipDepth,
+        long seed) {
+        
+        this.model = model;
+        this.peakRate = peakRate;
+        rateShare = poissonProc / peakRate;
+        this.migrationRate = migrationRate;
+        this.exclusionDegree = exclusionDegree;
+        trackInbreeding = kinshipDepth > 0;
+        kinship = exclusionDegree > 0 || trackInbreeding ?
+            new Kinship(kinshipDepth) : null;
+        rnd = new Random(seed);
+        
+        eventQ = new EventQueue();
+        populationList = new ArrayList<Sim>();
+        pool = new MatePool();
+        mateChoice = new UniformMateChoice();
+        emigrants = new ArrayList<Sim>();
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s currently alive in this
+     * {@link Deme}.
+     *
+     * @return The size of the living population
+     */
+    
+    public int size() {
+        
+        return populationList.size();
+    }
+    
+    /**
+     * Retrieves the {@link Sim}s currently alive in this {@link Deme}.
+     *
+     * @return The index of the living population
+     */
+    
+    public List<Sim> getPopulation() {
+        
+        return populationList;
+    }
+    
+    /**
+     * Retrieves the sum of the inbreeding coefficients of the births
+     * conceived in this {@link Deme}.
+     *
+     * @return The sum of the inbreeding coefficients, NaN if not computed
+     */
+    
+    public double getInbreedingSum() {
+        
+        return trackInbreeding ? inbreedingSum : Double.NaN;
+    }
+    
+    /**
+     * Retrieves the number of births conceived in this {@link Deme}.
+     *
+     * @return The number of births
+     */
+    
+    public long getBirths() {
+        
+        return births;
+    }
+    
+    /**
+     * Retrieves the number of candidate mates rejected for being relatives.
+     *
+     * @return The number of rejected candidates
+     */
+    
+    public long getRelativesRejected() {
+        
+        return rejected;
+    }
+    
+    /**
+     * Retrieves the number of {@link Partnership}s formed in this
+     * {@link Deme}.
+     *
+     * @return The number of {@link Partnership}s
+     */
+    
+    public long getPartnershipCount() {
+        
+        return partnerships;
+    }
+    
+    /**
+     * Retrieves the number of {@link Partnership}s ended by either partner
+     * pairing with someone else.
+     *
+     * @return The number of broken {@link Partnership}s
+     */
+    
+    public long getBreakups() {
+        
+        return breakups;
+    }
+    
+    /**
+     * Retrieves the number of births conceived in this {@link Deme} whose
+     * mother or father already had a child with another partner.
+     *
+     * @return The number of births with an older half-sibling
+     */
+    
+    public long getHalfSiblingBirths() {
+        
+        return halfSibBirths;
+    }
+    
+    /**
+     * Keeps every {@link Partnership} formed in this {@link Deme} from now
+     * on.
+     */
+    
+    public void keepPartnerships() {
+        
+        if (history == null) {
+            
+            history = new ArrayList<Partnership>();
+        }
+    }
+    
+    /**
+     * Retrieves the {@link Partnership}s formed in this {@link Deme} in
+     * order of formation.
+     *
+     * @return The {@link Partnership}s or null if they are not kept
+     */
+    
+    public List<Partnership> getPartnerships() {
+        
+        return history;
+    }
+    
+    /**
+     * Retrieves the number of {@link Event}s applied by this {@link Deme}.
+     *
+     * @return The number of processed {@link Event}s
+     */
+    
+    public long getEventsProcessed() {
+        
+        return processed;
+    }
+    
+    /**
+     * Retrieves the number of {@link Event}s removed from the queue before
+     * they were due, having been made void by a {@link Migration} or by a
+     * redrawn lifespan.
+     *
+     * @return The number of cancelled {@link Event}s
+     */
+    
+    public long getEventsCancelled() {
+        
+        return eventQ.getCancelled();
+    }
+    
+    /**
+     * Retrieves the number of {@link Reproduction} chains ended at the end
+     * of the mating age or at the death of the mother rather than left
+     * running until her death.
+     *
+     * @return The number of cut chains
+     */
+    
+    public long getReproductionChainsCut() {
+        
+        return chainsCut;
+    }
+    
+    /**
+     * Retrieves the largest number of {@link Event}s pending at once in this
+     * {@link Deme}.
+     *
+     * @return The peak size of the {@link Event} queue
+     */
+    
+    public int getPeakQueueSize() {
+        
+        return eventQ.getPeak();
+    }
+    
+    /**
+     * Retrieves the number of times the {@link Event} queue of this
+     * {@link Deme} was resized.
+     *
+     * @return The number of resizes
+     */
+    
+    public int getQueueResizes() {
+        
+        return eventQ.getResizes();
+    }
+    
+    /**
+     * Retrieves the number of bytes copied by the resizes of the
+     * {@link Event} queue of this {@link Deme}.
+     *
+     * @return The number of bytes copied
+     */
+    
+    public long getQueueBytesCopied() {
+        
+        return eventQ.getBytesCopied();
+    }
+    
+    /**
+     * Sets the policy ruling the resizes of the {@link Event} queue of this
+     * {@link Deme} from now on.
+     *
+     * @param policy The {@link CapacityPolicy} to follow
+     */
+    
+    public void setQueuePolicy(CapacityPolicy policy) {
+        
+        eventQ.setCapacityPolicy(policy);
+    }
+    
+    /**
+     * Switches the model followed by this {@link Deme} from now on.
+     * {@link Reproduction}s already scheduled remain valid, being thinned to
+     * the new rate.
+     *
+     * @param ageModel The {@link AgeModel} in effect
+     * @param poissonProc Its Poisson Point Process rate for reproduction, at
+     * most the peak rate of this {@link Deme}
+     */
+    
+    public void setModel(AgeModel ageModel, double poissonProc) {
+        
+        model = ageModel;
+        rateShare = poissonProc / peakRate;
+    }
+    
+    /**
+     * Sets how mothers pick their mate among the males of mating age of
+     * this {@link Deme} from now on.
+     *
+     * @param choice The {@link MateChoice} in effect
+     */
+    
+    public void setMateChoice(MateChoice choice) {
+        
+        mateChoice = choice;
+    }
+    
+    /**
+     * Retrieves the number of mate searches which ran out of draws, every
+     * candidate drawn being too closely related to the mother.
+     *
+     * @return The number of cut searches
+     */
+    
+    public long getMateSearchesCut() {
+        
+        return searchesCut;
+    }
+    
+    /**
+     * Sets the carrying capacity regulating the fertility of this
+     * {@link Deme} from now on. Fertility is scaled by {@code 2 / (1 + N / K)}
+     * for {@code N} living {@link Sim}s and a capacity {@code K}, a
+     * Beverton-Holt regulation which doubles it in an empty {@link Deme} and
+     * leaves it unchanged at capacity. The peak rate must allow for the
+     * doubling.
+     *
+     * @param carryingCapacity The capacity {@code K}, 0 to stop regulating
+     */
+    
+    public void setCapacity(double carryingCapacity) {
+        
+        capacity = carryingCapacity;
+    }
+    
+    /**
+     * Redraws the lifespans of the living {@link Sim}s from the model in
+     * effect, given the age they reached at the given time. Their pending
+     * {@link Event}s are cancelled and drawn again until the new death, a
+     * {@link Migration} for all but those already awaiting their departure
+     * so that no emigrant leaves twice.
+     *
+     * @param time Time of the change of model
+     */
+    
+    public void redrawLifespans(double time) {
+        
+        Set<Sim> leaving = new HashSet<Sim>(emigrants);
+        
+        for (Sim sim : populationList) {
+            
+            double birth = sim.getBirthTime();
+            
+            cancelPending(sim);
+            sim.setDeathTime(birth + model.randomAge(rnd, time - birth));
+            scheduleDeath(sim);
+            
+            if (sim.getSex().equals(Sim.Sex.F)) {
+                
+                scheduleReproduction(sim, time);
+            }
+            
+            if (!leaving.contains(sim)) {
+                
+                scheduleMigration(sim, time);
+            }
+        }
+    }
+    
+    /**
+     * Indicates whether this {@link Deme} has run out of {@link Event}s.
+     *
+     * @return <ul><li>{@code true} if no {@link Event} remains</li><li>
+     * {@code false} otherwise</li></ul>
+     */
+    
+    public boolean isDone() {
+        
+        return eventQ.isEmpty();
+    }
+    
+    /**
+     * Removes from this {@link Deme} the {@link Sim}s who underwent a
+     * {@link Migration} since the last call and are still alive at the given
+     * time. Their pending {@link Event}s are cancelled and their
+     * {@link Partnership}s end so that none spans two {@link Deme}s.
+     *
+     * @param time Time at which the window closed
+     * @return The {@link Sim}s awaiting their destination {@link Deme}
+     */
+    
+    public List<Sim> takeEmigrants(double time) {
+        
+        List<Sim> departed = new ArrayList<Sim>(emigrants.size());
+        
+        for (Sim sim : emigrants) {
+            
+            if (sim.isAlive(time)) {
+                
+                separate(sim, time);
+                cancelPending(sim);
+                
+                if (sim.getSex().equals(Sim.Sex.M)) {
+                    
+                    pool.remove(sim);
+                }
+                
+                removeSim(sim);
+                departed.add(sim);
+            }
+        }
+        
+        emigrants.clear();
+        
+        return departed;
+    }
+    
+    /**
+     * Settles a migrating {@link Sim} into this {@link Deme} at the given
+     * time. The {@link Sim}'s pending {@link Event}s are rescheduled here,
+     * the waiting times being memoryless.
+     *
+     * @param sim The arriving {@link Sim}
+     * @param time Time of arrival
+     */
+    
+    public void immigrate(Sim sim, double time) {
+        
+        scheduleDeath(sim);
+        scheduleLife(sim, time);
+        
+        sim.setPopIndex(populationList.size());
+        populationList.add(sim);
+        
+        if (sim.getSex().equals(Sim.Sex.M)) {
+            
+            pool.add(sim, time);
+        }
+    }
+    
+    /**
+     * Schedules the {@link Birth} of a given amount of founder {@link Sim}s
+     * at year 0.
+     *
+     * @param n Integer indicating number of founder {@link Sim}s
+     */
+    
+    public void generateFounders(int n) {
+        
+        // A Deme may start empty when there are fewer founders than Demes
+        if (n <= 0) {
+            
+            return;
+        }
+        
+        List<Event> founders = new ArrayList<Event>(n);
+        
+        while (n-- > 0) {
+            
+            founders.add(new Birth(new Sim(randomSex()), 0.0));
+        }
+        
+        eventQ.insertAll(founders, Event::getTime);
+    }
+    
+    /**
+     * Applies, in order, every {@link Event} of this {@link Deme} occurring
+     * up to and including the given time.
+     *
+     * @param until Time bound of the window to process
+     */
+    
+    public void advance(double until) {
+        
+        while (!eventQ.isEmpty() && eventQ.peekKey() <= until) {
+            
+            if (eventQ.peek() instanceof Birth) {
+                
+                birthBatch(until);
+                continue;
+            }
+            
+            Event e = eventQ.delMin();
+            
+            processed++;
+            
+            // Events made void are cancelled, so every Event due is valid
+            if (e instanceof Reproduction) {
+                
+                reproductionSim(e);
+            } else if (e instanceof Migration) {
+                
+                migrationSim(e);
+            } else if (e instanceof Death) {
+                
+                deathSim(e);
+            }
+        }
+    }
+    
+    /**
+     * Draws a random gender using this {@link Deme}'s random number
+     * generator.
+     *
+     * @return The drawn gender
+     */
+    
+    private Sim.Sex randomSex() {
+        
+        return rnd.nextBoolean() ? Sim.Sex.M : Sim.Sex.F;
+    }
+    
+    /**
+     * Adds the given {@link Event} to the {@link Event} queue keyed by its
+     * time of occurrence.
+     *
+     * @param e The {@link Event} to schedule
+     */
+    
+    private void schedule(Event e) {
+        
+        if (batching) {
+            
+            // The batch stops short of the Events it draws
+            batch.add(e);
+            batchEnd = Math.min(batchEnd, e.getTime());
+        } else {
+            
+            eventQ.schedule(e);
+        }
+    }
+    
+    /**
+     * Applies the consecutive {@link Birth}s at the head of the queue within
+     * {@link #BATCH_WINDOW} of the first one, such as the founders all born
+     * at year 0, and schedules the {@link Event}s they draw all at once. The
+     * batch stops before the earliest of these {@link Event}s, so every
+     * {@link Event} is still applied in order of time. A lone {@link Birth}
+     * schedules its {@link Event}s directly.
+     *
+     * @param until Time bound of the window to process
+     */
+    
+    private void birthBatch(double until) {
+        
+        Event first = eventQ.delMin();
+        
+        processed++;
+        batchEnd = Math.min(until, first.getTime() + BATCH_WINDOW);
+        
+        if (!birthDue()) {
+            
+            birthSim(first);
+            return;
+        }
+        
+        batching = true;
+        birthSim(first);
+        
+        while (birthDue()) {
+            
+            processed++;
+            birthSim(eventQ.delMin());
+        }
+        
+        batching = false;
+        eventQ.scheduleAll(batch);
+        batch.clear();
+    }
+    
+    /**
+     * Determines whether the head of the queue is a {@link Birth} within
+     * the current batch.
+     *
+     * @return <ul><li>{@code true} if the next {@link Event} joins the
+     * batch</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    private boolean birthDue() {
+        
+        return !eventQ.isEmpty() && eventQ.peekKey() <= batchEnd
+            && eventQ.peek() instanceof Birth;
+    }
+    
+    /**
+     * Removes the pending {@link Event}s of a {@link Sim} from the
+     * {@link Event} queue.
+     *
+     * @param sim The {@link Sim} of interest
+     */
+    
+    private void cancelPending(Sim sim) {
+        
+        eventQ.cancel(sim.getPendingDeath());
+        eventQ.cancel(sim.getPendingReproduction());
+        eventQ.cancel(sim.getPendingMigration());
+        
+        sim.setPendingDeath(null);
+        sim.setPendingReproduction(null);
+        sim.setPendingMigration(null);
+    }
+    
+    /**
+     * Schedules the {@link Death} of a {@link Sim} at their death time.
+     *
+     * @param sim The {@link Sim} of interest
+     */
+    
+    private void scheduleDeath(Sim sim) {
+        
+        Event death = new Death(sim, sim.getDeathTime());
+        
+        sim.setPendingDeath(death);
+        schedule(death);
+    }
+    
+    /**
+     * Completes the appropriate procedure for the {@link Birth} of a
+     * {@link Sim}.
+     *
+     * @param e The {@link Birth} {@link Event} details
+     */
+    
+    private void birthSim(Event e) {
+        
+        Sim sim = e.getSubject();
+        
+        // Setting the appropriate random death time
+        sim.setDeathTime(e.getTime() + model.randomAge(rnd));
+        
+        // Add Death Event for this Sim
+        scheduleDeath(sim);
+        scheduleLife(sim, e.getTime());
+        
+        // Adding the newly born Sim to the population
+        sim.setPopIndex(populationList.size());
+        populationList.add(sim);
+        
+        if (sim.getSex().equals(Sim.Sex.M)) {
+            
+            pool.add(sim, e.getTime());
+        }
+    }
+    
+    /**
+     * Schedules the recurring {@link Event}s of a {@link Sim} who starts
+     * living in this {@link Deme} at the given time.
+     *
+     * @param sim The {@link Sim} of interest
+     * @param time Time from which the {@link Event}s are drawn
+     */
+    
+    private void scheduleLife(Sim sim, double time) {
+        
+        // If the Sim is a woman, add a Reproduction Event
+        if (sim.getSex().equals(Sim.Sex.F)) {
+            
+            scheduleReproduction(sim, time);
+        }
+        
+        scheduleMigration(sim, time);
+    }
+    
+    /**
+     * Schedules the next {@link Reproduction} of a woman at the peak rate,
+     * the chain starting at the minimum mating age and ending at the maximum
+     * one or at her death. The process being memoryless, starting it late
+     * and cutting it early leaves the {@link Reproduction}s within her mating
+     * years unchanged in distribution.
+     *
+     * @param mother The female {@link Sim} of interest
+     * @param time Time from which the waiting time is drawn
+     */
+    
+    private void scheduleReproduction(Sim mother, double time) {
+        
+        double birth = mother.getBirthTime();
+        double next = Math.max(time, birth + Sim.MIN_MATING_AGE_F)
+            + AgeModel.randomWaitingTime(rnd, peakRate);
+        
+        if (next <= birth + Sim.MAX_MATING_AGE_F && mother.isAlive(next)) {
+            
+            Event reproduction = new Reproduction(mother, next);
+            
+            mother.setPendingReproduction(reproduction);
+            schedule(reproduction);
+        } else {
+            
+            mother.setPendingReproduction(null);
+            chainsCut++;
+        }
+    }
+    
+    /**
+     * Schedules the next {@link Migration} of a {@link Sim} if it occurs
+     * before their death.
+     *
+     * @param sim The {@link Sim} of interest
+     * @param time Time from which the waiting time is drawn
+     */
+    
+    private void scheduleMigration(Sim sim, double time) {
+        
+        if (migrationRate > 0.0) {
+            
+            double departure = time
+                + AgeModel.randomWaitingTime(rnd, migrationRate);
+            
+            if (sim.isAlive(departure)) {
+                
+                Event migration = new Migration(sim, departure);
+                
+                sim.setPendingMigration(migration);
+                schedule(migration);
+            }
+        }
+    }
+    
+    /**
+     * Completes the appropriate procedure for the {@link Migration} of a
+     * {@link Sim}, who keeps living in this {@link Deme} until the current
+     * window closes.
+     *
+     * @param e The {@link Migration} {@link Event} details
+     */
+    
+    private void migrationSim(Event e) {
+        
+        e.getSubject().setPendingMigration(null);
+        emigrants.add(e.getSubject());
+    }
+    
+    /**
+     * Completes the appropriate procedure for the {@link Death} of a
+     * {@link Sim} by ending their {@link Partnership} and removing them from
+     * the population index.
+     *
+     * @param e The {@link Death} {@link Event} details
+     */
+    
+    private void deathSim(Event e) {
+        
+        Sim sim = e.getSubject();
+        
+        sim.setPendingDeath(null);
+        separate(sim, e.getTime());
+        
+        if (sim.getSex().equals(Sim.Sex.M)) {
+            
+            pool.remove(sim);
+        }
+        
+        removeSim(sim);
+    }
+    
+    /**
+     * Ends the ongoing {@link Partnership} of a {@link Sim}, if any, both
+     * partners becoming single.
+     *
+     * @param sim The {@link Sim} of interest
+     * @param time Time at which the {@link Partnership} ends
+     */
+    
+    private void separate(Sim sim, double time) {
+        
+        Partnership p = sim.getPartnership();
+        
+        if (p != null && p.isActive(time)) {
+            
+            p.end(time);
+            p.getFemale().setPartnership(null);
+            p.getMale().setPartnership(null);
+            pool.setPartnered(p.getMale(), false);
+        }
+    }
+    
+    /**
+     * Pairs a mother with a male, both leaving their ongoing
+     * {@link Partnership}s.
+     *
+     * @param mother The female {@link Sim}
+     * @param mate The male {@link Sim}
+     * @param time Time at which they pair up
+     */
+    
+    private void pair(Sim mother, Sim mate, double time) {
+        
+        if (mother.isInARelationship(time)) {
+            
+            breakups++;
+            separate(mother, time);
+        }
+        
+        if (mate.isInARelationship(time)) {
+            
+            breakups++;
+            separate(mate, time);
+        }
+        
+        Partnership p = new Partnership(mother, mate, time);
+        
+        mother.setPartnership(p);
+        mate.setPartnership(p);
+        pool.setPartnered(mate, true);
+        partnerships++;
+        
+        if (history != null) {
+            
+            history.add(p);
+        }
+    }
+    
+    /**
+     * Removes the given {@link Sim} from the population index.
+     *
+     * @param sim The {@link Sim} to remove
+     */
+    
+    private void removeSim(Sim sim) {
+        
+        int last = populationList.size() - 1;
+        
+        // Moving the Sim to the end of the index for O(1) removal
+        swapSims(sim.getPopIndex(), last);
+        populationList.remove(last);
+    }
+    
+    /**
+     * Positionally swaps two {@link Sim}s in the population index while
+     * keeping their stored positions up to date.
+     *
+     * @param i Index of first {@link Sim}
+     * @param j Index of second {@link Sim}
+     */
+    
+    private void swapSims(int i, int j) {
+        
+        Sim si = populationList.get(i);
+        Sim sj = populationList.get(j);
+        
+        populationList.set(i, sj);
+        populationList.set(j, si);
+        
+        sj.setPopIndex(i);
+        si.setPopIndex(j);
+    }
+    
+    /**
+     * Completes the appropriate procedure for the {@link Reproduction}
+     * relating to a female {@link Sim}.
+     *
+     * @param e The {@link Reproduction} {@link Event} details
+     */
+    
+    private void reproductionSim(Event e) {
+        
+        // If the female Sim is of mating age and conceives at her age
+        if (e.getSubject().isMatingAge(e.getTime())
+            && isFertile(e.getSubject(), e.getTime())) {
+            
+            // Choose father for the newborn child
+            chooseFatherSim(e);
+            
+            // Birth of their child
+            if (e.getSubject().isInARelationship(e.getTime())) {
+                
+                Partnership p = e.getSubject().getPartnership();
+                
+                births++;
+                
+                // Children beyond those of the couple are half-siblings
+                if (p.getFemale().getChildCount() > p.getChildren()
+                    || p.getMale().getChildCount() > p.getChildren()) {
+                    
+                    halfSibBirths++;
+                }
+                
+                p.addChild();
+                p.getFemale().addChild();
+                p.getMale().addChild();
+                
+                if (trackInbreeding) {
+                    
+                    inbreedingSum += kinship.inbreeding(e.getSubject(),
+                    e.getSubject().getMate());
+                }
+                
+                schedule(new Birth(new Sim(e.getSubject(),
+                e.getSubject().getMate(), e.getTime(), randomSex()),
+                e.getTime()));
+            }
+        }
+        
+        scheduleReproduction(e.getSubject(), e.getTime());
+    }
+    
+    /**
+     * Determines whether a {@link Reproduction} at the peak rate results in
+     * a conception, following the share of the peak rate in effect, the
+     * fertility of the mother's age relative to its peak and the density
+     * regulation if any. No random number is drawn when all are full.
+     *
+     * @param mother The female {@link Sim} of interest
+     * @param time Time of the {@link Reproduction}
+     * @return <ul><li>{@code true} if she conceives</li><li>{@code false}
+     * otherwise</li></ul>
+     */
+    
+    private boolean isFertile(Sim mother, double time) {
+        
+        double p = rateShare * model.getFertility(time - mother.getBirthTime());
+        
+        if (capacity > 0.0) {
+            
+            p *= 2.0 / (1.0 + populationList.size() / capacity);
+        }
+        
+        return p >= 1.0 || rnd.nextDouble() < p;
+    }
+    
+    /**
+     * Selects a male {@link Sim} with which the female {@link Sim} who is in
+     * the process of a {@link Reproduction} {@link Event} will mate with. A
+     * partnered mother leaves her mate with a probability given by the
+     * loyalty factor, for any male of mating age, and stays single if none
+     * is found. A single mother pairs with a single male or, with the same
+     * probability, with a partnered one.
+     *
+     * @param e The {@link Reproduction} {@link Event} details
+     */
+    
+    private void chooseFatherSim(Event e) {
+        
+        Sim mother = e.getSubject();
+        double time = e.getTime();
+        double infidelity = 1 - model.getLoyaltyFactor();
+        
+        pool.update(time);
+        
+        // Different procedure on whether the mother has a mate or not
+        if (mother.isInARelationship(time)) {
+            
+            if (rnd.nextDouble() < infidelity) {
+                
+                Sim mate = getRandomMate(mother, 1.0);
+                
+                if (mate == mother.getMate()) {
+                    
+                    return;
+                } else if (mate != null) {
+                    
+                    pair(mother, mate, time);
+                } else {
+                    
+                    breakups++;
+                    separate(mother, time);
+                }
+            }
+        } else {
+            
+            Sim mate = getRandomMate(mother, infidelity);
+            
+            if (mate != null) {
+                
+                pair(mother, mate, time);
+            }
+        }
+    }
+    
+    /**
+     * Picks a male of mating age for the given mother following the
+     * {@link MateChoice} in effect, a partnered male being drawn with the
+     * given weight relative to a single one. Candidates too closely related
+     * to the mother are picked again, up to {@link #MAX_MATE_DRAWS} times, so
+     * that a search is bounded even when most males are relatives.
+     *
+     * @param mother The female {@link Sim} looking for a mate
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @return The selected mate or null if none was found
+     */
+    
+    private Sim getRandomMate(Sim mother, double partneredWeight) {
+        
+        for (int i = 0; i < MAX_MATE_DRAWS; i++) {
+            
+            Sim mate = mateChoice.choose(mother, pool, partneredWeight, rnd);
+            
+            if (mate == null || !isExcluded(mate, mother)) {
+                
+                return mate;
+            }
+        }
+        
+        searchesCut++;
+        
+        return null;
+    }
+    
+    /**
+     * Determines whether a candidate mate is too closely related to the
+     * {@link Sim} looking for a mate.
+     *
+     * @param candidate The candidate mate
+     * @param sim The {@link Sim} looking for a mate
+     * @return <ul><li>{@code true} if they are related within the exclusion
+     * degree</li><li>{@code false} otherwise or if relatives are accepted
+     * </li></ul>
+     */
+    
+    private boolean isExcluded(Sim candidate, Sim sim) {
+        
+        if (exclusionDegree > 0
+            && kinship.isRelated(candidate, sim, exclusionDegree)) {
+            
+            rejected++;
+            return true;
+        }
+        
+        return false;
+    }
+}
\ No newline at end of file
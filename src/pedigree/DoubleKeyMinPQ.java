@@ -0,0 +1,482 @@
+package pedigree;
+
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The class {@link DoubleKeyMinPQ} defines a min priority queue of elements
+ * ordered by a primitive {@code double} priority. Priorities are stored in a
+ * {@code double} array next to the payload array and the heap is laid out as
+ * a 4-ary tree, which keeps comparisons primitive and halves the height of
+ * the tree compared to {@link MinPQ}. Subclasses may follow the position of
+ * each element through {@link #moved(Object, int)} to remove it before it
+ * comes out.
+ *
+ * @param T The generic type of elements on this priority queue
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class DoubleKeyMinPQ<T> {
+    
+    static final int DEFAULT_CAPACITY = 4;
+    
+    private static final int ARITY = 4; // Number of children per node
+    
+    private Object[] values;
+    private double[] keys;
+    private int n;
+    private CapacityPolicy policy;
+    private int floor;        // Capacity below which the arrays never shrink
+    private int shrinkAt;     // Size at which the arrays shrink, -1 if never
+    private int resizes;      // Resizes of the arrays so far
+    private long bytesCopied; // Bytes copied by those resizes
+    
+    /**
+     * Initializes the priority queue with the given initial capacity and
+     * capacity policy. The arrays never shrink below the initial capacity.
+     *
+     * @param capacity Number of elements the queue holds before resizing
+     * @param policy The {@link CapacityPolicy} ruling later resizes
+     * @throws IllegalArgumentException if capacity is negative or if the
+     * policy is null
+     */
+    
+    public DoubleKeyMinPQ(int capacity, CapacityPolicy policy) {
+        
+        if (capacity < 0) {
+            
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        
+        capacity = Math.max(capacity, DEFAULT_CAPACITY);
+        values = new Object[capacity];
+        keys = new double[capacity];
+        floor = capacity;
+        n = 0;
+        setCapacityPolicy(policy);
+    }
+    
+    /**
+     * Initializes the priority queue with the given initial capacity.
+     *
+     * @param capacity Number of elements the queue holds before resizing
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    
+    public DoubleKeyMinPQ(int capacity) {
+        
+        this(capacity, CapacityPolicy.DEFAULT);
+    }
+    
+    /**
+     * Initializes the priority queue with default capacity.
+     */
+    
+    public DoubleKeyMinPQ() {
+        
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Indicates whether the priority queue is empty or not.
+     *
+     * @return <ul><li>{@code true} if this priority queue is empty</li><li>
+     * {@code false} otherwise</li></ul>
+     */
+    
+    public boolean isEmpty() {
+        
+        return n == 0;
+    }
+    
+    /**
+     * Retrieves the size of the priority queue.
+     *
+     * @return The number of elements in the priority queue
+     */
+    
+    public int size() {
+        
+        return n;
+    }
+    
+    /**
+     * Sets the policy ruling the following resizes of the priority queue.
+     *
+     * @param capacityPolicy The {@link CapacityPolicy} to follow
+     * @throws IllegalArgumentException if the policy is null
+     */
+    
+    public void setCapacityPolicy(CapacityPolicy capacityPolicy) {
+        
+        if (capacityPolicy == null) {
+            
+            throw new IllegalArgumentException("No capacity policy");
+        }
+        
+        policy = capacityPolicy;
+        shrinkAt = shrinkAt(values.length);
+    }
+    
+    /**
+     * Retrieves the policy ruling the resizes of the priority queue.
+     *
+     * @return The {@link CapacityPolicy} followed
+     */
+    
+    public CapacityPolicy getCapacityPolicy() {
+        
+        return policy;
+    }
+    
+    /**
+     * Retrieves the number of times the arrays of the priority queue were
+     * resized.
+     *
+     * @return The number of resizes
+     */
+    
+    public int getResizes() {
+        
+        return resizes;
+    }
+    
+    /**
+     * Retrieves the number of bytes copied by the resizes, counting
+     * {@link CapacityPolicy#REFERENCE_BYTES} per element and its
+     * {@code double} priority.
+     *
+     * @return The number of bytes copied
+     */
+    
+    public long getBytesCopied() {
+        
+        return bytesCopied;
+    }
+    
+    /**
+     * Adds a new {@link T} type object to the priority queue with the given
+     * priority.
+     *
+     * @param v Element to add onto priority queue
+     * @param key Priority of the element, lower values come out first
+     */
+    
+    public void insert(T v, double key) {
+        
+        // Growing capacity if necessary
+        if (n == values.length) {
+            
+            resize(policy.grow(n, n + 1));
+        }
+        
+        swim(n++, v, key);
+    }
+    
+    /**
+     * Adds all elements of the given {@link Collection} to the priority queue
+     * using the given function to compute their priorities. The heap is
+     * rebuilt bottom-up once all elements are appended. An empty
+     * {@link Collection} leaves the queue untouched.
+     *
+     * @param elements Elements to add onto priority queue
+     * @param key Function computing the priority of each element
+     */
+    
+    public void insertAll(Collection<? extends T> elements,
+        ToDoubleFunction<? super T> key) {
+        
+        if (elements.isEmpty()) {
+            
+            return;
+        }
+        
+        if (n + elements.size() > values.length) {
+            
+            resize(policy.grow(values.length, n + elements.size()));
+        }
+        
+        for (T v : elements) {
+            
+            values[n] = v;
+            keys[n] = key.applyAsDouble(v);
+            moved(v, n++);
+        }
+        
+        // A single element is already a heap
+        for (int i = (n - 2) / ARITY; n > 1 && i >= 0; i--) {
+            
+            sink(i, values[i], keys[i]);
+        }
+    }
+    
+    /**
+     * Retrieves and removes the minimum element of this priority queue.
+     *
+     * @return The highest priority element of this priority queue
+     * @throws NoSuchElementException if priority queue is empty
+     */
+    
+    public T delMin() throws NoSuchElementException {
+        
+        T min = peek();
+        
+        moved(min, -1);
+        removeAt(0);
+        
+        return min;
+    }
+    
+    /**
+     * Retrieves the minimum element of the priority queue.
+     *
+     * @return The highest priority element of this priority queue
+     * @throws NoSuchElementException if priority queue is empty
+     */
+    
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        
+        if (isEmpty()) {
+            
+            throw new NoSuchElementException("Priority queue underflow");
+        }
+        
+        return (T)values[0];
+    }
+    
+    /**
+     * Retrieves the priority of the minimum element of the priority queue.
+     *
+     * @return The lowest priority value in this priority queue
+     * @throws NoSuchElementException if priority queue is empty
+     */
+    
+    public double peekKey() {
+        
+        if (isEmpty()) {
+            
+            throw new NoSuchElementException("Priority queue underflow");
+        }
+        
+        return keys[0];
+    }
+    
+    /**
+     * Removes the element at the given position of the heap, filling the
+     * hole with the last element.
+     *
+     * @param i Position of the element to remove
+     */
+    
+    protected void removeAt(int i) {
+        
+        Object last = values[--n];
+        double key = keys[n];
+        values[n] = null;
+        
+        // The last element goes up or down from the hole
+        if (i < n) {
+            
+            if (i > 0 && keys[(i - 1) / ARITY] > key) {
+                
+                swim(i, last, key);
+            } else {
+                
+                sift(i, last, key);
+            }
+        }
+        
+        if (n > DEFAULT_CAPACITY && n <= shrinkAt) {
+            
+            resize(Math.max(policy.shrink(values.length, n), floor));
+        }
+    }
+    
+    /**
+     * Called whenever an element takes a new position in the heap, and with
+     * position -1 when it comes out. Does nothing unless overridden.
+     *
+     * @param v The element
+     * @param i Its new position or -1
+     */
+    
+    protected void moved(Object v, int i) {
+    
+    }
+    
+    /**
+     * Resizes the priority queue to the given capacity, copying only the
+     * elements held, in bulk.
+     *
+     * @param capacity New capacity of the priority queue
+     */
+    
+    private void resize(int capacity) {
+        
+        Object[] v = new Object[capacity];
+        double[] k = new double[capacity];
+        
+        System.arraycopy(values, 0, v, 0, n);
+        System.arraycopy(keys, 0, k, 0, n);
+        values = v;
+        keys = k;
+        shrinkAt = shrinkAt(capacity);
+        resizes++;
+        bytesCopied += (long)n * (CapacityPolicy.REFERENCE_BYTES
+        + Double.BYTES);
+    }
+    
+    /**
+     * Determines the size at or below which arrays of the given capacity
+     * shrink, following the policy down to the initial capacity.
+     *
+     * @param capacity Current capacity
+     * @return The size at which they shrink, -1 if they never do
+     */
+    
+    private int shrinkAt(int capacity) {
+        
+        return capacity > floor ? policy.shrinkAt(capacity) : -1;
+    }
+    
+    /**
+     * Positions an element up from the given hole through the 4-ary heap
+     * structure to preserve the min-heap property. Parents are shifted down
+     * into the hole rather than swapped.
+     *
+     * @param i Index of the hole to fill
+     * @param v Element to position
+     * @param key Priority of the element
+     */
+    
+    private void swim(int i, Object v, double key) {
+        
+        while (i > 0) {
+            
+            int parent = (i - 1) / ARITY;
+            
+            if (keys[parent] <= key) {
+                
+                break;
+            }
+            
+            values[i] = values[parent];
+            keys[i] = keys[parent];
+            moved(values[i], i);
+            i = parent;
+        }
+        
+        values[i] = v;
+        keys[i] = key;
+        moved(v, i);
+    }
+    
+    /**
+     * Positions an element down from the given hole, which no ancestor of
+     * the hole is greater than. The hole is first moved down to a leaf
+     * through the smallest children, without comparing them to the element,
+     * then the element climbs back from there. As the last element of the
+     * heap is removed into the hole, it mostly belongs near the leaves, and
+     * this saves the comparison with it at every level.
+     *
+     * @param i Index of the hole to fill
+     * @param v Element to position
+     * @param key Priority of the element
+     */
+    
+    private void sift(int i, Object v, double key) {
+        
+        int hole = i;
+        int child;
+        
+        while ((child = ARITY * hole + 1) < n) {
+            
+            // Selecting the min child node
+            int end = Math.min(child + ARITY, n);
+            int min = child;
+            double minKey = keys[child];
+            
+            for (int j = child + 1; j < end; j++) {
+                
+                if (keys[j] < minKey) {
+                    
+                    min = j;
+                    minKey = keys[j];
+                }
+            }
+            
+            values[hole] = values[min];
+            keys[hole] = minKey;
+            moved(values[hole], hole);
+            hole = min;
+        }
+        
+        while (hole > i) {
+            
+            int parent = (hole - 1) / ARITY;
+            
+            if (keys[parent] <= key) {
+                
+                break;
+            }
+            
+            values[hole] = values[parent];
+            keys[hole] = keys[parent];
+            moved(values[hole], hole);
+            hole = parent;
+        }
+        
+        values[hole] = v;
+        keys[hole] = key;
+        moved(v, hole);
+    }
+    
+    /**
+     * Positions an element down from the given hole through the 4-ary heap
+     * structure to preserve the min-heap property. The smallest child is
+     * shifted up into the hole rather than swapped.
+     *
+     * @param i Index of the hole to fill
+     * @param v Element to position
+     * @param key Priority of the element
+     */
+    
+    private void sink(int i, Object v, double key) {
+        
+        int child;
+        
+        while ((child = ARITY * i + 1) < n) {
+            
+            // Selecting the min child node
+            int end = Math.min(child + ARITY, n);
+            int min = child;
+            double minKey = keys[child];
+            
+            for (int j = child + 1; j < end; j++) {
+                
+                if (keys[j] < minKey) {
+                    
+                    min = j;
+                    minKey = keys[j];
+                }
+            }
+            
+            if (key <= minKey) {
+                
+                break;
+            }
+            
+            values[i] = values[min];
+            keys[i] = minKey;
+            moved(values[i], i);
+            i = min;
+        }
+        
+        values[i] = v;
+        keys[i] = key;
+        moved(v, i);
+    }
+}
\ No newline at end of file
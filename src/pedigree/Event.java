@@ -12,6 +12,7 @@ public abstract class Event implements Comparable<Event> {
     
     private Sim subject; // Sim of interest for which Event is defined
     private double time; // Time at which given event will take place
+    private int queueIndex = -1; // Position in its queue, -1 if not pending
     
     /**
      * Initializes an {@link Event} involving a subject {@link Sim} and the
@@ -51,6 +52,29 @@ public abstract class Event implements Comparable<Event> {
     	return time;
     }
     
+    /**
+     * Retrieves the position of this {@link Event} in its {@link EventQueue},
+     * which serves as a handle to cancel it.
+     *
+     * @return The position or -1 if the {@link Event} is not pending
+     */
+    
+    int getQueueIndex() {
+        
+        return queueIndex;
+    }
+    
+    /**
+     * Sets the position of this {@link Event} in its {@link EventQueue}.
+     *
+     * @param queueIndex The position or -1 once the {@link Event} is out
+     */
+    
+    void setQueueIndex(int queueIndex) {
+        
+        this.queueIndex = queueIndex;
+    }
+    
     /** 
      * Defines {@link Event} ordering by each {@link Event}'s time of
      * occurrence.
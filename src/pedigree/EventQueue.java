@@ -0,0 +1,115 @@
+package pedigree;
+
+import java.util.List;
+
+/**
+ * The class {@link EventQueue} defines the {@link Event} queue of a
+ * {@link Deme}. Each {@link Event} keeps its position in the heap, which
+ * serves as a handle to cancel it in logarithmic time, so that
+ * {@link Event}s made void by a change of circumstances leave the queue at
+ * once instead of being drawn and discarded when due.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class EventQueue extends DoubleKeyMinPQ<Event> {
+    
+    private long cancelled; // Events removed before they were due
+    private int peak;       // Largest number of pending Events
+    
+    /**
+     * Adds an {@link Event} to the queue keyed by its time of occurrence.
+     *
+     * @param e The {@link Event} to schedule
+     */
+    
+    public void schedule(Event e) {
+        
+        insert(e, e.getTime());
+        peak = Math.max(peak, size());
+    }
+    
+    /**
+     * Adds several {@link Event}s to the queue keyed by their time of
+     * occurrence. A batch at least as large as the queue is heapified
+     * together with it in linear time, a smaller one is inserted
+     * {@link Event} by {@link Event}.
+     *
+     * @param events The {@link Event}s to schedule
+     */
+    
+    public void scheduleAll(List<Event> events) {
+        
+        if (events.size() >= size()) {
+            
+            insertAll(events, Event::getTime);
+        } else {
+            
+            for (Event e : events) {
+                
+                insert(e, e.getTime());
+            }
+        }
+        
+        peak = Math.max(peak, size());
+    }
+    
+    /**
+     * Removes a pending {@link Event} from the queue.
+     *
+     * @param e The {@link Event} to cancel or null
+     * @return <ul><li>{@code true} if the {@link Event} was pending and is
+     * now removed</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean cancel(Event e) {
+        
+        if (e == null || e.getQueueIndex() < 0) {
+            
+            return false;
+        }
+        
+        removeAt(e.getQueueIndex());
+        e.setQueueIndex(-1);
+        cancelled++;
+        
+        return true;
+    }
+    
+    /**
+     * Retrieves the number of {@link Event}s cancelled so far.
+     *
+     * @return The number of cancelled {@link Event}s
+     */
+    
+    public long getCancelled() {
+        
+        return cancelled;
+    }
+    
+    /**
+     * Retrieves the largest number of {@link Event}s pending at once so far.
+     *
+     * @return The peak size of the queue
+     */
+    
+    public int getPeak() {
+        
+        return peak;
+    }
+    
+    /**
+     * Keeps the position of each {@link Event} up to date as it moves
+     * through the heap.
+     *
+     * @param v The {@link Event}
+     * @param i Its new position or -1 when it comes out
+     */
+    
+    @Override
+    protected void moved(Object v, int i) {
+        
+        ((Event)v).setQueueIndex(i);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package pedigree;
+
+import java.util.Arrays;
+
+/**
+ * The class {@link FertilitySchedule} holds an age-specific fertility
+ * schedule, constant within consecutive age intervals and zero outside of
+ * them. Rates are scaled so that the peak fertility is 1, the average number
+ * of children being set by the {@link AgeModel} using the schedule.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class FertilitySchedule {
+    
+    private final double[] ages;      // Bounds of the intervals, ascending
+    private final double[] fertility; // Relative fertility by interval
+    
+    /**
+     * Initializes a schedule with the given rates over the intervals between
+     * consecutive ages.
+     *
+     * @param ages Bounds of the age intervals in ascending order
+     * @param rates Fertility rates within each interval, in any unit
+     * @throws IllegalArgumentException if there is not one more bound than
+     * rates, if the bounds are not ascending or if the rates are negative or
+     * all zero
+     */
+    
+    public FertilitySchedule(double[] ages, double[] rates) {
+        
+        if (rates.length == 0 || ages.length != rates.length + 1) {
+            
+            throw new IllegalArgumentException("Needs one more age than rate");
+        }
+        
+        double peak = 0.0;
+        
+        for (int i = 0; i < rates.length; i++) {
+            
+            if (!(ages[i] < ages[i + 1])) {
+                
+                throw new IllegalArgumentException("Ages not ascending");
+            }
+            
+            if (!(rates[i] >= 0.0)) {
+                
+                throw new IllegalArgumentException("Negative rate");
+            }
+            
+            peak = Math.max(peak, rates[i]);
+        }
+        
+        if (peak == 0.0) {
+            
+            throw new IllegalArgumentException("No fertile age");
+        }
+        
+        this.ages = ages.clone();
+        fertility = new double[rates.length];
+        
+        for (int i = 0; i < rates.length; i++) {
+            
+            fertility[i] = rates[i] / peak;
+        }
+    }
+    
+    /**
+     * Determines the fertility at the given age relative to its peak.
+     *
+     * @param age Age of the mother
+     * @return The relative fertility, 0 outside of the schedule
+     */
+    
+    public double getFertility(double age) {
+        
+        if (!(age >= ages[0] && age < ages[ages.length - 1])) {
+            
+            return 0.0;
+        }
+        
+        int i = Arrays.binarySearch(ages, age);
+        
+        // Bounds open their interval, other ages fall in the one before
+        return fertility[i >= 0 ? i : -i - 2];
+    }
+    
+    /**
+     * Defines the string implementation of a {@link FertilitySchedule}.
+     *
+     * @return String implementation of {@link FertilitySchedule}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[ages ").append(ages[0]).append(" to ")
+        .append(ages[ages.length - 1]).append(", intervals ")
+        .append(fertility.length).append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The class {@link GompertzMakehamModel} models the lifespan of a {@link Sim}
+ * following a Gompertz-Makeham distribution, sampled in closed form.
+ * 
+ * @version 1.9.18 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class GompertzMakehamModel implements AgeModel {
+    
+    // Yearly rate
+    static final double DEFAULT_DEATH_RATE = 12.5;    // Doubles every 8 years
+    static final double DEFAULT_ACCIDENT_RATE = 0.01; // Constant accident rate
+    
+    // Constant human factors
+    static final double DEFAULT_LOYALTY_FACTOR = 0.9;
+    static final double DEFAULT_AVG_LIFETIME_OFFSPRING = 2.0;
+    
+    // "maximum" age [with death rate 1]
+    static final double DEFAULT_SCALE = 100.0;
+    
+    private final double DEATH_RATE;
+    private final double ACCIDENT_RATE;
+    private final double LOYALTY_FACTOR;
+    private final double AVG_LIFETIME_OFFSPRING;
+    private final double AGE_FACTOR;
+    private final double AGE_SCALE;
+    private final FertilitySchedule FERTILITY; // Null for a constant one
+    
+    /**
+     * Initializes the model with the given rates and factors.
+     *
+     * @param deathRate The annual death rate
+     * @param accidentRate The annual accident rate
+     * @param loyaltyFactor The loyalty factor which determines how loyal a
+     * {@link Sim} partner is to their mate
+     * @param avgLifetimeOffspring The average number of children a mother
+     * {@link Sim} will have in her lifetime
+     * @param ageScale Maximum age with death rate 1
+     */
+    
+    public GompertzMakehamModel(double deathRate, double accidentRate,
+        double loyaltyFactor, double avgLifetimeOffspring, double ageScale) {
+        
+        this(deathRate, accidentRate, loyaltyFactor, avgLifetimeOffspring,
+        ageScale, null);
+    }
+    
+    /**
+     * Initializes the model with the given rates, factors and age-specific
+     * fertility.
+     *
+     * @param deathRate The annual death rate
+     * @param accidentRate The annual accident rate
+     * @param loyaltyFactor The loyalty factor which determines how loyal a
+     * {@link Sim} partner is to their mate
+     * @param avgLifetimeOffspring The average number of children a mother
+     * {@link Sim} will have in her lifetime
+     * @param ageScale Maximum age with death rate 1
+     * @param fertility The relative fertility by age or null for a constant
+     * fertility over the mating ages
+     */
+    
+    public GompertzMakehamModel(double deathRate, double accidentRate,
+        double loyaltyFactor, double avgLifetimeOffspring, double ageScale,
+        FertilitySchedule fertility) {
+        
+        DEATH_RATE = deathRate;
+        ACCIDENT_RATE = accidentRate;
+        LOYALTY_FACTOR = loyaltyFactor;
+        AVG_LIFETIME_OFFSPRING = avgLifetimeOffspring;
+        AGE_FACTOR = Math.exp(ageScale / DEATH_RATE);
+        AGE_SCALE = ageScale;
+        FERTILITY = fertility;
+    }
+    
+    /**
+     * Initializes a model with the default human values.
+     */
+    
+    public GompertzMakehamModel() {
+        
+        this(DEFAULT_DEATH_RATE, DEFAULT_ACCIDENT_RATE, DEFAULT_LOYALTY_FACTOR,
+        DEFAULT_AVG_LIFETIME_OFFSPRING, DEFAULT_SCALE);
+    }
+    
+    /**
+     * Determines the probability of surviving past the given age.
+     * 
+     * @param age Age with which probability is calculated
+     * @return Probability of dying after the given age
+     */
+    
+    @Override
+    public double getSurvival(double age) {
+        
+        return Math.exp(-ACCIDENT_RATE * age
+        - DEATH_RATE * Math.expm1(age / DEATH_RATE) / AGE_FACTOR);
+    }
+    
+    /**
+     * Determines the fertility at the given age relative to its peak.
+     *
+     * @param age Age of the mother
+     * @return The relative fertility, 1 at every age if it is constant
+     */
+    
+    @Override
+    public double getFertility(double age) {
+        
+        return FERTILITY == null ? 1.0 : FERTILITY.getFertility(age);
+    }
+    
+    /**
+     * Retrieves the annual death rate associated with this model.
+     *
+     * @return The death rate associated with this model
+     */
+    
+    public double getDeathRate() {
+        
+        return DEATH_RATE;
+    }
+    
+    /**
+     * Retrieves the annual accident rate associated with this model.
+     *
+     * @return The accident rate associated with this model
+     */
+    
+    public double getAccidentRate() {
+        
+        return ACCIDENT_RATE;
+    }
+    
+    /**
+     * Retrieves the average number of children per mother associated with
+     * this model.
+     *
+     * @return The average lifetime offspring associated with this model
+     */
+    
+    @Override
+    public double getAvgLifetimeOffspring() {
+        
+        return AVG_LIFETIME_OFFSPRING;
+    }
+    
+    /**
+     * Retrieves the maximum age with death rate 1 associated with this model.
+     *
+     * @return The age scale associated with this model
+     */
+    
+    public double getAgeScale() {
+        
+        return AGE_SCALE;
+    }
+    
+    /**
+     * Retrieves the loyalty factor associated with this model.
+     *
+     * @return The loyalty factor associated with this model
+     */
+    
+    @Override
+    public double getLoyaltyFactor() {
+        
+        return LOYALTY_FACTOR;
+    }
+    
+    /**
+     * Generates a random value with the specified lifespan distribution.
+     * 
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return a random value distributed by Gomperz-Makeham
+     */
+    
+    @Override
+    public double randomAge(Random rnd) {
+        
+        // pseudorandom by exponential for accident-related death
+        double accidentalDeath = -Math.log(rnd.nextDouble()) / ACCIDENT_RATE;
+        
+        // pseudorandom by Gompertz for old-age
+        double ageDeath = DEATH_RATE *
+        Math.log1p(-Math.log(rnd.nextDouble()) / DEATH_RATE * AGE_FACTOR);
+        
+        return Math.min(ageDeath, accidentalDeath);
+    }
+    
+    /**
+     * Generates a random value with the specified lifespan distribution
+     * conditioned on surviving to the given age.
+     *
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @param age Age reached
+     * @return a random value distributed by Gomperz-Makeham, at least the
+     * given age
+     */
+    
+    @Override
+    public double randomAge(Random rnd, double age) {
+        
+        // accidents are memoryless
+        double accidentalDeath = age - Math.log(rnd.nextDouble())
+        / ACCIDENT_RATE;
+        
+        // inverting the Gompertz survival relative to the age reached
+        double ageDeath = DEATH_RATE * Math.log(Math.exp(age / DEATH_RATE)
+        - Math.log(rnd.nextDouble()) / DEATH_RATE * AGE_FACTOR);
+        
+        return Math.min(ageDeath, accidentalDeath);
+    }
+    
+    /**
+     * Defines the string implementation of a {@link GompertzMakehamModel}.
+     * 
+     * @return String implementation of {@link GompertzMakehamModel}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[acc ").append(ACCIDENT_RATE).append(", age ")
+        .append(DEATH_RATE).append(", agefactor ").append(AGE_FACTOR)
+        .append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+package pedigree;
+
+import java.util.Arrays;
+
+/**
+ * The class {@link Kinship} computes kinship and inbreeding coefficients
+ * over the pedigree of {@link Sim}s. The kinship of two {@link Sim}s is the
+ * probability that alleles drawn at random from each are identical by
+ * descent, computed recursively through the parents of the younger one.
+ * Only common ancestors within a given number of meioses are accounted for,
+ * which bounds the cost of each computation, and intermediate results are
+ * memoized in a cache of fixed size where colliding entries replace each
+ * other.
+ *
+ * <p>Instances are not safe for use by concurrent threads.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Kinship {
+    
+    // Default number of meioses followed, reaching the great-grandparents
+    // shared by second cousins
+    static final int DEFAULT_DEPTH = 6;
+    static final int DEFAULT_CACHE_BITS = 16; // Default of 65536 entries
+    
+    private final int depth;      // Meioses followed from the pair
+    private final int shift;      // Turns a hash into a cache slot
+    private final long[] pairs;   // Identities of the cached pairs
+    private final byte[] depths;  // Meioses left of the cached pairs, or -1
+    private final double[] values;
+    
+    private long lookups;
+    private long hits;
+    
+    /**
+     * Initializes a computation following the given number of meioses with
+     * a cache of the given size.
+     *
+     * @param depth Number of meioses followed up from a pair of {@link Sim}s
+     * @param cacheBits Base 2 logarithm of the number of cache entries
+     * @throws IllegalArgumentException if the depth is not within [0, 126]
+     * or the cache size is not within [1, 30]
+     */
+    
+    public Kinship(int depth, int cacheBits) {
+        
+        if (depth < 0 || depth > Byte.MAX_VALUE - 1) {
+            
+            throw new IllegalArgumentException("Depth out of [0, 126]");
+        }
+        
+        if (cacheBits < 1 || cacheBits > 30) {
+            
+            throw new IllegalArgumentException("Cache bits out of [1, 30]");
+        }
+        
+        this.depth = depth;
+        shift = 64 - cacheBits;
+        pairs = new long[1 << cacheBits];
+        depths = new byte[1 << cacheBits];
+        values = new double[1 << cacheBits];
+        
+        Arrays.fill(depths, (byte)-1);
+    }
+    
+    /**
+     * Initializes a computation following the given number of meioses with
+     * a cache of default size.
+     *
+     * @param depth Number of meioses followed up from a pair of {@link Sim}s
+     * @throws IllegalArgumentException if the depth is not within [0, 126]
+     */
+    
+    public Kinship(int depth) {
+        
+        this(depth, DEFAULT_CACHE_BITS);
+    }
+    
+    /**
+     * Retrieves the kinship coefficient below which two {@link Sim}s are
+     * more distant than the given degree of relationship. Degrees follow the
+     * usual boundaries halfway, on a logarithmic scale, between the expected
+     * coefficients: 1/4 for the first degree (parents, children and full
+     * siblings), 1/8 for the second degree (grandparents, half siblings,
+     * uncles and aunts), 1/16 for the third degree (first cousins) and so on.
+     *
+     * @param degree Degree of relationship, at least 1
+     * @return The smallest kinship coefficient within the degree
+     */
+    
+    public static double threshold(int degree) {
+        
+        return Math.pow(2.0, -(degree + 1.5));
+    }
+    
+    /**
+     * Computes the kinship coefficient of two {@link Sim}s.
+     *
+     * @param a The first {@link Sim}
+     * @param b The second {@link Sim}
+     * @return The kinship coefficient, between 0 and 1
+     */
+    
+    public double kinship(Sim a, Sim b) {
+        
+        return coefficient(a, b, depth);
+    }
+    
+    /**
+     * Computes the inbreeding coefficient of a {@link Sim}, the kinship of
+     * their parents.
+     *
+     * @param sim The {@link Sim} of interest
+     * @return The inbreeding coefficient, 0 for a founder
+     */
+    
+    public double inbreeding(Sim sim) {
+        
+        return sim.isFounder() ?
+            0.0 : coefficient(sim.getMother(), sim.getFather(), depth);
+    }
+    
+    /**
+     * Computes the inbreeding coefficient of a child of the given parents.
+     *
+     * @param mother The mother
+     * @param father The father
+     * @return The inbreeding coefficient of their child
+     */
+    
+    public double inbreeding(Sim mother, Sim father) {
+        
+        return coefficient(mother, father, depth);
+    }
+    
+    /**
+     * Determines whether two {@link Sim}s are related within the given
+     * degree, following only as many meioses as such relationships span.
+     *
+     * @param a The first {@link Sim}
+     * @param b The second {@link Sim}
+     * @param degree Degree of relationship, at least 1
+     * @return <ul><li>{@code true} if their kinship reaches the threshold of
+     * the degree</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean isRelated(Sim a, Sim b, int degree) {
+        
+        // A degree d relationship spans at most d + 1 meioses
+        return coefficient(a, b, Math.min(degree + 1, Byte.MAX_VALUE - 1))
+            >= threshold(degree);
+    }
+    
+    /**
+     * Retrieves the number of cache lookups made so far.
+     *
+     * @return The number of lookups
+     */
+    
+    public long getLookups() {
+        
+        return lookups;
+    }
+    
+    /**
+     * Retrieves the number of cache lookups which found their entry.
+     *
+     * @return The number of hits
+     */
+    
+    public long getHits() {
+        
+        return hits;
+    }
+    
+    /**
+     * Computes the kinship coefficient of two {@link Sim}s accounting for
+     * common ancestors within the given number of meioses.
+     *
+     * @param a The first {@link Sim}
+     * @param b The second {@link Sim}
+     * @param left Number of meioses left to follow
+     * @return The kinship coefficient
+     */
+    
+    private double coefficient(Sim a, Sim b, int left) {
+        
+        if (a == b) {
+            
+            return left == 0 || a.isFounder() ? 0.5 :
+                0.5 * (1 + coefficient(a.getMother(), a.getFather(), left - 1));
+        }
+        
+        // The younger one, created last, cannot be an ancestor of the other
+        if (a.getIdent() < b.getIdent()) {
+            
+            Sim tmp = a;
+            a = b;
+            b = tmp;
+        }
+        
+        if (left == 0 || a.isFounder()) {
+            
+            return 0.0;
+        }
+        
+        long pair = (long)a.getIdent() << 32 | b.getIdent() & 0xFFFFFFFFL;
+        int slot = (int)((pair ^ left * 0x9E3779B97F4A7C15L)
+            * 0xBF58476D1CE4E5B9L >>> shift);
+        
+        lookups++;
+        
+        if (pairs[slot] == pair && depths[slot] == left) {
+            
+            hits++;
+            return values[slot];
+        }
+        
+        double value = 0.5 * (coefficient(a.getMother(), b, left - 1)
+            + coefficient(a.getFather(), b, left - 1));
+        
+        pairs[slot] = pair;
+        depths[slot] = (byte)left;
+        values[slot] = value;
+        
+        return value;
+    }
+}
\ No newline at end of file
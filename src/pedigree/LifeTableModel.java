@@ -0,0 +1,328 @@
+package pedigree;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The class {@link LifeTableModel} models the lifespan of a {@link Sim}
+ * following a piecewise life table: the number of survivors of a cohort is
+ * given at consecutive ages and deaths are spread evenly between them. A
+ * lifespan is drawn by picking its age interval from an {@link AliasTable} in
+ * constant time, then a uniform age within the interval.
+ *
+ * <p>Tables are read from text files holding one {@code age survivors} row
+ * per line, separated by blanks or commas, with {@code #} starting comment
+ * lines. The first age must be 0 and the survivors must decrease down to 0
+ * at the last age. An optional third column gives the fertility rate from
+ * the age of its row up to the next one, in any unit.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class LifeTableModel implements AgeModel {
+    
+    private final double[] ages;      // Ages of the table, from 0 ascending
+    private final double[] survival;  // Share of the cohort alive at each age
+    private final AliasTable deaths;  // Age interval of death
+    private final double loyaltyFactor;
+    private final double avgLifetimeOffspring;
+    private final FertilitySchedule fertility; // Null for a constant one
+    
+    /**
+     * Initializes the model from the survivors of a cohort at the given ages.
+     *
+     * @param ages Ages of the table in ascending order, starting from 0
+     * @param survivors Survivors of the cohort at each age, in any unit,
+     * decreasing down to 0 at the last age
+     * @param loyaltyFactor The loyalty factor which determines how loyal a
+     * {@link Sim} partner is to their mate
+     * @param avgLifetimeOffspring The average number of children a mother
+     * {@link Sim} will have in her lifetime
+     * @param fertility The relative fertility by age or null for a constant
+     * fertility over the mating ages
+     * @throws IllegalArgumentException if the table is malformed
+     */
+    
+    public LifeTableModel(double[] ages, double[] survivors,
+        double loyaltyFactor, double avgLifetimeOffspring,
+        FertilitySchedule fertility) {
+        
+        int n = ages.length;
+        
+        if (n < 2 || survivors.length != n) {
+            
+            throw new IllegalArgumentException("Needs two ages and survivors");
+        }
+        
+        if (ages[0] != 0.0 || !(survivors[0] > 0.0)) {
+            
+            throw new IllegalArgumentException("Table must start at age 0");
+        }
+        
+        if (survivors[n - 1] != 0.0) {
+            
+            throw new IllegalArgumentException("Survivors left at last age");
+        }
+        
+        double[] dying = new double[n - 1];
+        
+        for (int i = 0; i < n - 1; i++) {
+            
+            if (!(ages[i] < ages[i + 1])) {
+                
+                throw new IllegalArgumentException("Ages not ascending");
+            }
+            
+            if (!(survivors[i + 1] <= survivors[i])) {
+                
+                throw new IllegalArgumentException("Survivors increasing");
+            }
+            
+            dying[i] = survivors[i] - survivors[i + 1];
+        }
+        
+        this.ages = ages.clone();
+        survival = new double[n];
+        
+        for (int i = 0; i < n; i++) {
+            
+            survival[i] = survivors[i] / survivors[0];
+        }
+        
+        deaths = new AliasTable(dying);
+        this.loyaltyFactor = loyaltyFactor;
+        this.avgLifetimeOffspring = avgLifetimeOffspring;
+        this.fertility = fertility;
+    }
+    
+    /**
+     * Loads a model from a life table file, with the fertility of its third
+     * column if it has one.
+     *
+     * @param file Path of the life table
+     * @param loyaltyFactor The loyalty factor which determines how loyal a
+     * {@link Sim} partner is to their mate
+     * @param avgLifetimeOffspring The average number of children a mother
+     * {@link Sim} will have in her lifetime
+     * @return The model following the table
+     * @throws IOException if the file could not be read
+     * @throws IllegalArgumentException if the table is malformed
+     */
+    
+    public static LifeTableModel load(Path file, double loyaltyFactor,
+        double avgLifetimeOffspring) throws IOException {
+        
+        List<double[]> rows = new ArrayList<double[]>();
+        int lineNumber = 0;
+        
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            
+            lineNumber++;
+            line = line.trim();
+            
+            if (line.isEmpty() || line.startsWith("#")) {
+                
+                continue;
+            }
+            
+            String[] fields = line.split("[\\s,]+");
+            
+            if (fields.length < 2 || fields.length > 3) {
+                
+                throw new IllegalArgumentException("Line " + lineNumber
+                + ": expected age, survivors and optional fertility");
+            }
+            
+            double[] row = new double[fields.length];
+            
+            try {
+                
+                for (int i = 0; i < fields.length; i++) {
+                    
+                    row[i] = Double.parseDouble(fields[i]);
+                }
+            } catch(NumberFormatException e) {
+                
+                throw new IllegalArgumentException("Line " + lineNumber
+                + ": " + e.getMessage());
+            }
+            
+            rows.add(row);
+        }
+        
+        double[] ages = new double[rows.size()];
+        double[] survivors = new double[rows.size()];
+        double[] rates = new double[Math.max(rows.size() - 1, 0)];
+        boolean withFertility = false;
+        
+        for (int i = 0; i < rows.size(); i++) {
+            
+            double[] row = rows.get(i);
+            
+            ages[i] = row[0];
+            survivors[i] = row[1];
+            
+            if (row.length == 3 && i < rates.length) {
+                
+                rates[i] = row[2];
+                withFertility = true;
+            }
+        }
+        
+        return new LifeTableModel(ages, survivors, loyaltyFactor,
+        avgLifetimeOffspring,
+        withFertility ? new FertilitySchedule(ages, rates) : null);
+    }
+    
+    /**
+     * Generates a random lifespan following the life table.
+     *
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return A random lifespan
+     */
+    
+    @Override
+    public double randomAge(Random rnd) {
+        
+        int i = deaths.sample(rnd);
+        
+        return ages[i] + rnd.nextDouble() * (ages[i + 1] - ages[i]);
+    }
+    
+    /**
+     * Generates a random lifespan following the life table for a
+     * {@link Sim} known to be alive at the given age, by inverting the
+     * interpolated survival.
+     *
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @param age Age reached by the {@link Sim}
+     * @return A random lifespan, at least the given age
+     */
+    
+    @Override
+    public double randomAge(Random rnd, double age) {
+        
+        double alive = getSurvival(age);
+        
+        if (alive <= 0.0) {
+            
+            return age;
+        }
+        
+        double level = rnd.nextDouble() * alive; // Survival at death
+        int lo = 0;                              // Last age above the level
+        int hi = survival.length - 1;            // First age at or below it
+        
+        while (hi - lo > 1) {
+            
+            int mid = (lo + hi) >>> 1;
+            
+            if (survival[mid] > level) {
+                
+                lo = mid;
+            } else {
+                
+                hi = mid;
+            }
+        }
+        
+        return Math.max(age, ages[lo] + (survival[lo] - level)
+            / (survival[lo] - survival[hi]) * (ages[hi] - ages[lo]));
+    }
+    
+    /**
+     * Determines the probability of surviving past the given age,
+     * interpolated linearly between the ages of the table.
+     *
+     * @param age Age with which probability is calculated
+     * @return Probability of dying after the given age
+     */
+    
+    @Override
+    public double getSurvival(double age) {
+        
+        if (age <= 0.0) {
+            
+            return 1.0;
+        }
+        
+        if (age >= ages[ages.length - 1]) {
+            
+            return 0.0;
+        }
+        
+        int i = Arrays.binarySearch(ages, age);
+        
+        if (i >= 0) {
+            
+            return survival[i];
+        }
+        
+        i = -i - 2;
+        
+        return survival[i] + (survival[i + 1] - survival[i])
+            * (age - ages[i]) / (ages[i + 1] - ages[i]);
+    }
+    
+    /**
+     * Determines the fertility at the given age relative to its peak.
+     *
+     * @param age Age of the mother
+     * @return The relative fertility, 1 at every age if it is constant
+     */
+    
+    @Override
+    public double getFertility(double age) {
+        
+        return fertility == null ? 1.0 : fertility.getFertility(age);
+    }
+    
+    /**
+     * Retrieves the average number of children per mother associated with
+     * this model.
+     *
+     * @return The average lifetime offspring associated with this model
+     */
+    
+    @Override
+    public double getAvgLifetimeOffspring() {
+        
+        return avgLifetimeOffspring;
+    }
+    
+    /**
+     * Retrieves the loyalty factor associated with this model.
+     *
+     * @return The loyalty factor associated with this model
+     */
+    
+    @Override
+    public double getLoyaltyFactor() {
+        
+        return loyaltyFactor;
+    }
+    
+    /**
+     * Defines the string implementation of a {@link LifeTableModel}.
+     *
+     * @return String implementation of {@link LifeTableModel}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[ages ").append(ages.length).append(", max age ")
+        .append(ages[ages.length - 1]).append(", fertility ")
+        .append(fertility == null ? "constant" : "by age").append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
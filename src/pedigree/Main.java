@@ -1,5 +1,9 @@
 package pedigree;
 
+import java.io.IOException;
+
+import java.nio.file.Paths;
+
 /**
  * The class {@link Main} initiates the application.
  *
@@ -16,17 +20,66 @@ public class Main {
      *
      * @param args <ul><li>{@code args[0]} is an {@code int} that holds the
      * number of founders for the simulation</li><li>{@code args[1]} is a
-     * {@code double} that holds the maximum time of the simulation</li></ul>
+     * {@code double} that holds the maximum time of the simulation</li><li>
+     * {@code args[2]} is an optional {@code int} that holds the number of
+     * demes partitioning the population</li><li>{@code args[3]} is an
+     * optional {@code double} that holds the yearly migration rate between
+     * demes</li></ul>
+     * Alternatively, {@code --batch founders maxTime runs [directory]} runs
+     * the given number of simulations without any display and writes their
+     * results and charts to the given directory, the working directory by
+     * default, {@code --compare founders maxTime runs} prints the lineages
+     * of the given number of simulations next to those drawn by the
+     * coalescent, and {@code --cohorts founders maxTime runs} prints their
+     * population sizes and lineages next to those of the cohort engine.
      */
     
     public static void main(String[] args) {
         
-        if (args.length != 2) {
+        if (args.length >= 4 && args[0].equals("--batch")) {
             
-            new SimPlot("", "");
-        } else {
+            // Charts are rendered offscreen
+            System.setProperty("java.awt.headless", "true");
+            
+            try {
+                
+                BatchRunner.run(Integer.parseInt(args[1]),
+                Double.parseDouble(args[2]), Integer.parseInt(args[3]),
+                Paths.get(args.length > 4 ? args[4] : "."),
+                Runtime.getRuntime().availableProcessors());
+            } catch(IOException e) {
+                
+                e.printStackTrace();
+                System.exit(1);
+            }
+        } else if (args.length == 4 && args[0].equals("--compare")) {
+            
+            CoalescentComparison comparison = new CoalescentComparison(
+            Integer.parseInt(args[1]), Double.parseDouble(args[2]),
+            CoalescentComparison.DEFAULT_POINTS);
+            
+            comparison.run(Integer.parseInt(args[3]));
+            comparison.print(System.out);
+        } else if (args.length == 4 && args[0].equals("--cohorts")) {
+            
+            CohortComparison comparison = new CohortComparison(
+            Integer.parseInt(args[1]), Double.parseDouble(args[2]),
+            CohortComparison.DEFAULT_POINTS);
+            
+            comparison.run(Integer.parseInt(args[3]));
+            comparison.print(System.out);
+        } else if (args.length == 4) {
+            
+            new SimPlot(args[0], args[1], args[2], args[3]);
+        } else if (args.length == 3) {
+            
+            new SimPlot(args[0], args[1], args[2], "0.0");
+        } else if (args.length == 2) {
             
             new SimPlot(args[0], args[1]);
+        } else {
+            
+            new SimPlot("", "");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The interface {@link MateChoice} describes how a mother picks a male from
+ * the {@link MatePool} of her {@link Deme}. Every implementation draws a
+ * bounded number of males through {@link MatePool#draw(Random, double)}, so
+ * that a mate search takes constant time whatever the state of the
+ * population.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public interface MateChoice {
+    
+    /**
+     * Picks a candidate mate for the given mother.
+     *
+     * @param mother The female {@link Sim} looking for a mate
+     * @param pool The males of mating age of her {@link Deme}
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return The candidate or null if the pool holds no male of positive
+     * weight
+     */
+    
+    Sim choose(Sim mother, MatePool pool, double partneredWeight, Random rnd);
+}
\ No newline at end of file
@@ -0,0 +1,285 @@
+package pedigree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The class {@link MatePool} indexes the male {@link Sim}s of mating age
+ * living in a {@link Deme}, split between single males and males in an
+ * ongoing {@link Partnership}, so that a male of either kind is drawn in
+ * constant time. Males enter the pool as they reach the minimum mating age
+ * and leave it as they pass the maximum one, these changes of age stage
+ * being kept in a queue which is caught up with before each mate search.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class MatePool {
+    
+    private final List<Sim> singles;   // Single males of mating age
+    private final List<Sim> partnered; // Partnered males of mating age
+    private final StageQueue stages;   // Males by next change of age stage
+    
+    /**
+     * Initializes an empty pool.
+     */
+    
+    public MatePool() {
+        
+        singles = new ArrayList<Sim>();
+        partnered = new ArrayList<Sim>();
+        stages = new StageQueue();
+    }
+    
+    /**
+     * Retrieves the number of males of mating age in the pool.
+     *
+     * @return The number of eligible males
+     */
+    
+    public int size() {
+        
+        return singles.size() + partnered.size();
+    }
+    
+    /**
+     * Retrieves the number of single males of mating age.
+     *
+     * @return The number of single males
+     */
+    
+    public int getSingleCount() {
+        
+        return singles.size();
+    }
+    
+    /**
+     * Retrieves the number of partnered males of mating age.
+     *
+     * @return The number of partnered males
+     */
+    
+    public int getPartneredCount() {
+        
+        return partnered.size();
+    }
+    
+    /**
+     * Retrieves the single male at the given position, the order of the
+     * males being arbitrary.
+     *
+     * @param i Position of the male, below {@link #getSingleCount()}
+     * @return The single male
+     */
+    
+    public Sim getSingle(int i) {
+        
+        return singles.get(i);
+    }
+    
+    /**
+     * Retrieves the partnered male at the given position, the order of the
+     * males being arbitrary.
+     *
+     * @param i Position of the male, below {@link #getPartneredCount()}
+     * @return The partnered male
+     */
+    
+    public Sim getPartnered(int i) {
+        
+        return partnered.get(i);
+    }
+    
+    /**
+     * Draws a male of mating age, a partnered male being drawn with the
+     * given weight relative to a single one. The pool being indexed, the
+     * draw takes constant time and an empty pool is detected at once.
+     *
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @return The drawn male or null if no male of positive weight remains
+     */
+    
+    public Sim draw(Random rnd, double partneredWeight) {
+        
+        int taken = partnered.size();
+        double total = singles.size() + partneredWeight * taken;
+        
+        if (!(total > 0.0)) {
+            
+            return null;
+        }
+        
+        return rnd.nextDouble() * total < singles.size() ?
+            singles.get(rnd.nextInt(singles.size())) :
+            partnered.get(rnd.nextInt(taken));
+    }
+    
+    /**
+     * Adds a male {@link Sim} who starts living in the {@link Deme} at the
+     * given time, who enters the pool at once if of mating age or when
+     * reaching it.
+     *
+     * @param male The male {@link Sim}
+     * @param time Time of his birth or arrival
+     */
+    
+    public void add(Sim male, double time) {
+        
+        double birth = male.getBirthTime();
+        double age = time - birth;
+        
+        if (age < Sim.MIN_MATING_AGE_M) {
+            
+            stages.insert(male, birth + Sim.MIN_MATING_AGE_M);
+        } else if (age < Sim.MAX_MATING_AGE_M) {
+            
+            join(male, male.isInARelationship(time));
+            stages.insert(male, birth + Sim.MAX_MATING_AGE_M);
+        }
+    }
+    
+    /**
+     * Removes a male {@link Sim} who stops living in the {@link Deme}.
+     *
+     * @param male The male {@link Sim}
+     */
+    
+    public void remove(Sim male) {
+        
+        leave(male);
+        stages.cancel(male);
+    }
+    
+    /**
+     * Moves a male {@link Sim} between the single and partnered males after
+     * his {@link Partnership} started or ended. Does nothing if he is not of
+     * mating age.
+     *
+     * @param male The male {@link Sim}
+     * @param isPartnered Whether he is now in an ongoing {@link Partnership}
+     */
+    
+    public void setPartnered(Sim male, boolean isPartnered) {
+        
+        int i = male.getPoolIndex();
+        
+        if (i != -1 && (i < 0) != isPartnered) {
+            
+            leave(male);
+            join(male, isPartnered);
+        }
+    }
+    
+    /**
+     * Applies the changes of age stage up to the given time, admitting the
+     * males who reached the minimum mating age and dismissing those who
+     * passed the maximum one.
+     *
+     * @param time Time of the upcoming mate search
+     */
+    
+    public void update(double time) {
+        
+        while (!stages.isEmpty() && stages.peekKey() <= time) {
+            
+            double key = stages.peekKey();
+            Sim male = stages.delMin();
+            
+            if (male.getPoolIndex() == -1) {
+                
+                join(male, male.isInARelationship(key));
+                stages.insert(male, male.getBirthTime()
+                + Sim.MAX_MATING_AGE_M);
+            } else {
+                
+                leave(male);
+            }
+        }
+    }
+    
+    /**
+     * Adds a male to the single or partnered males. Positions of partnered
+     * males are stored as {@code -i - 2} to tell the two lists apart.
+     *
+     * @param male The male {@link Sim}
+     * @param isPartnered Whether he is in an ongoing {@link Partnership}
+     */
+    
+    private void join(Sim male, boolean isPartnered) {
+        
+        List<Sim> list = isPartnered ? partnered : singles;
+        
+        male.setPoolIndex(isPartnered ? -list.size() - 2 : list.size());
+        list.add(male);
+    }
+    
+    /**
+     * Removes a male from the single or partnered males, if in either, by
+     * moving the last male of the list into his position.
+     *
+     * @param male The male {@link Sim}
+     */
+    
+    private void leave(Sim male) {
+        
+        int i = male.getPoolIndex();
+        
+        if (i == -1) {
+            
+            return;
+        }
+        
+        List<Sim> list = i >= 0 ? singles : partnered;
+        Sim last = list.remove(list.size() - 1);
+        
+        if (last != male) {
+            
+            list.set(i >= 0 ? i : -i - 2, last);
+            last.setPoolIndex(i);
+        }
+        
+        male.setPoolIndex(-1);
+    }
+    
+    /**
+     * The class {@link StageQueue} keys the males by the time of their next
+     * change of age stage and keeps the position of each in the heap so that
+     * a male leaving the {@link Deme} is removed at once.
+     */
+    
+    private static class StageQueue extends DoubleKeyMinPQ<Sim> {
+        
+        /**
+         * Removes a male from the queue if pending.
+         *
+         * @param male The male {@link Sim}
+         */
+        
+        private void cancel(Sim male) {
+            
+            if (male.getStageIndex() >= 0) {
+                
+                removeAt(male.getStageIndex());
+                male.setStageIndex(-1);
+            }
+        }
+        
+        /**
+         * Keeps the position of each male up to date as it moves through the
+         * heap.
+         *
+         * @param v The male {@link Sim}
+         * @param i His new position or -1 when he comes out
+         */
+        
+        @Override
+        protected void moved(Object v, int i) {
+            
+            ((Sim)v).setStageIndex(i);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package pedigree;
+
+/**
+ * The class {@link Migration} defines an {@link Event} which indicates the
+ * departure of a {@link Sim} from their {@link Deme} towards another one.
+ * 
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Migration extends Event {
+    
+    /**
+     * Defines a {@link Migration} type {@link Event} for the given subject
+     * {@link Sim} and the time at which they will leave their {@link Deme}.
+     * 
+     * @param subject {@link Sim} migrating to another {@link Deme}
+     * @param time Time at which migration will take place
+     */
+    
+    public Migration(Sim subject, double time) {
+        
+        super(subject, time);
+    }
+}
\ No newline at end of file
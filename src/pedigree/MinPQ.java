@@ -1,5 +1,6 @@
 package pedigree;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.NoSuchElementException;
 
@@ -19,6 +20,64 @@ public class MinPQ<T extends Comparable<T>> {
     private Object[] pq;
     private int n;
     private Comparator<T> comparator;
+    private CapacityPolicy policy;
+    private int floor;        // Capacity below which the array never shrinks
+    private int shrinkAt;     // Size at which the array shrinks, -1 if never
+    private int resizes;      // Resizes of the array so far
+    private long bytesCopied; // Bytes copied by those resizes
+    
+    /**
+     * Initializes the priority queue with the given initial capacity using
+     * given comparator and capacity policy. The array never shrinks below the
+     * initial capacity.
+     *
+     * @param capacity Number of elements the queue holds before resizing
+     * @param comparator Natural given order of elements
+     * @param policy The {@link CapacityPolicy} ruling later resizes
+     * @throws IllegalArgumentException if capacity is negative or if the
+     * policy is null
+     */
+    
+    public MinPQ(int capacity, Comparator<T> comparator,
+        CapacityPolicy policy) {
+        
+        if (capacity < 0) {
+            
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        
+        pq = new Object[Math.max(capacity + 1, DEFAULT_CAPACITY)];
+        floor = capacity;
+        n = 0;
+        this.comparator = comparator;
+        setCapacityPolicy(policy);
+    }
+    
+    /**
+     * Initializes the priority queue with the given initial capacity using
+     * given comparator.
+     *
+     * @param capacity Number of elements the queue holds before resizing
+     * @param comparator Natural given order of elements
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    
+    public MinPQ(int capacity, Comparator<T> comparator) {
+        
+        this(capacity, comparator, CapacityPolicy.DEFAULT);
+    }
+    
+    /**
+     * Initializes the priority queue with the given initial capacity and no
+     * comparator.
+     *
+     * @param capacity Number of elements the queue holds before resizing
+     */
+    
+    public MinPQ(int capacity) {
+        
+        this(capacity, null);
+    }
     
     /**
      * Initializes the priority queue with default capacity using given
@@ -29,9 +88,7 @@ public class MinPQ<T extends Comparable<T>> {
     
     public MinPQ(Comparator<T> comparator) {
         
-        pq = new Object[DEFAULT_CAPACITY];
-        n = 0;
-        this.comparator = comparator;
+        this(0, comparator);
     }
     
     /**
@@ -40,7 +97,62 @@ public class MinPQ<T extends Comparable<T>> {
     
     public MinPQ() {
         
-        this(null);
+        this(0, null);
+    }
+    
+    /**
+     * Initializes the priority queue from the given elements using given
+     * comparator. The heap is built bottom-up in linear time.
+     *
+     * @param elements Elements to place onto the priority queue
+     * @param comparator Natural given order of elements
+     */
+    
+    public MinPQ(T[] elements, Comparator<T> comparator) {
+        
+        this(elements.length, comparator);
+        
+        System.arraycopy(elements, 0, pq, 1, elements.length);
+        n = elements.length;
+        heapify();
+    }
+    
+    /**
+     * Initializes the priority queue from the given elements with no
+     * comparator. The heap is built bottom-up in linear time.
+     *
+     * @param elements Elements to place onto the priority queue
+     */
+    
+    public MinPQ(T[] elements) {
+        
+        this(elements, null);
+    }
+    
+    /**
+     * Initializes the priority queue from the given {@link Collection} using
+     * given comparator. The heap is built bottom-up in linear time.
+     *
+     * @param elements Elements to place onto the priority queue
+     * @param comparator Natural given order of elements
+     */
+    
+    public MinPQ(Collection<? extends T> elements, Comparator<T> comparator) {
+        
+        this(elements.size(), comparator);
+        insertAll(elements);
+    }
+    
+    /**
+     * Initializes the priority queue from the given {@link Collection} with
+     * no comparator. The heap is built bottom-up in linear time.
+     *
+     * @param elements Elements to place onto the priority queue
+     */
+    
+    public MinPQ(Collection<? extends T> elements) {
+        
+        this(elements, null);
     }
     
     /**
@@ -55,6 +167,59 @@ public class MinPQ<T extends Comparable<T>> {
         return n == 0;
     }
     
+    /**
+     * Sets the policy ruling the following resizes of the priority queue.
+     *
+     * @param capacityPolicy The {@link CapacityPolicy} to follow
+     * @throws IllegalArgumentException if the policy is null
+     */
+    
+    public void setCapacityPolicy(CapacityPolicy capacityPolicy) {
+        
+        if (capacityPolicy == null) {
+            
+            throw new IllegalArgumentException("No capacity policy");
+        }
+        
+        policy = capacityPolicy;
+        shrinkAt = shrinkAt(pq.length - 1);
+    }
+    
+    /**
+     * Retrieves the policy ruling the resizes of the priority queue.
+     *
+     * @return The {@link CapacityPolicy} followed
+     */
+    
+    public CapacityPolicy getCapacityPolicy() {
+        
+        return policy;
+    }
+    
+    /**
+     * Retrieves the number of times the array of the priority queue was
+     * resized.
+     *
+     * @return The number of resizes
+     */
+    
+    public int getResizes() {
+        
+        return resizes;
+    }
+    
+    /**
+     * Retrieves the number of bytes copied by the resizes, counting
+     * {@link CapacityPolicy#REFERENCE_BYTES} per element.
+     *
+     * @return The number of bytes copied
+     */
+    
+    public long getBytesCopied() {
+        
+        return bytesCopied;
+    }
+    
     /**
      * Adds a new {@link T} type object to the priority queue.
      *
@@ -63,16 +228,81 @@ public class MinPQ<T extends Comparable<T>> {
     
     public void insert(T v) {
         
-        // Doubling capacity if necessary
+        // Growing capacity if necessary
         if (n == pq.length - 1) {
             
-            resize(2 * pq.length);
+            resize(policy.grow(n, n + 1));
         }
         
         pq[++n] = v;
         swim(n);
     }
     
+    /**
+     * Adds all elements of the given {@link Collection} to the priority queue.
+     * The capacity is adjusted once and, when the batch is at least as large
+     * as the current queue, the heap is rebuilt bottom-up rather than swimming
+     * each element.
+     *
+     * @param elements Elements to add onto priority queue
+     */
+    
+    public void insertAll(Collection<? extends T> elements) {
+        
+        int k = elements.size();
+        
+        if (n + k >= pq.length) {
+            
+            resize(policy.grow(pq.length - 1, n + k));
+        }
+        
+        int first = n + 1;
+        
+        for (T v : elements) {
+            
+            pq[++n] = v;
+        }
+        
+        if (k >= first - 1) {
+            
+            heapify();
+        } else {
+            
+            for (int i = first; i <= n; i++) {
+                
+                swim(i);
+            }
+        }
+    }
+    
+    /**
+     * Removes all elements of the priority queue and adds them to the given
+     * {@link Collection} in priority order.
+     *
+     * @param c {@link Collection} receiving the elements
+     * @return The number of elements transferred
+     */
+    
+    public int drainTo(Collection<? super T> c) {
+        
+        int count = n;
+        
+        // Shrinking is deferred until the queue is empty
+        while (n > 0) {
+            
+            c.add(pq(1));
+            swap(1, n--);
+            sink(1);
+            pq[n + 1] = null;
+        }
+        
+        pq = new Object[Math.max(Math.max(policy.getMinCapacity(), floor) + 1,
+        DEFAULT_CAPACITY)];
+        shrinkAt = shrinkAt(pq.length - 1);
+        
+        return count;
+    }
+    
     /**
      * Retrieves the size of the priority queue.
      * 
@@ -99,9 +329,9 @@ public class MinPQ<T extends Comparable<T>> {
         sink(1);
         pq[n + 1] = null;
         
-        if (n > 0 && n == (pq.length - 1) / 4) {
+        if (n > 0 && n <= shrinkAt) {
             
-            resize(pq.length / 2);
+            resize(Math.max(policy.shrink(pq.length - 1, n), floor));
         }
         
         return min;
@@ -146,21 +376,47 @@ public class MinPQ<T extends Comparable<T>> {
     }
     
     /**
-     * Resizes the priority queue to the given capacity.
+     * Resizes the priority queue to the given capacity, copying the elements
+     * in bulk.
      *
      * @param capacity New capacity of the priority queue
      */
     
     private void resize(int capacity) {
         
-        Object[] temp = new Object[capacity];
+        Object[] temp = new Object[capacity + 1];
         
-        for (int i = 1; i <= n; i++) {
+        System.arraycopy(pq, 1, temp, 1, n);
+        pq = temp;
+        shrinkAt = shrinkAt(capacity);
+        resizes++;
+        bytesCopied += (long)n * CapacityPolicy.REFERENCE_BYTES;
+    }
+    
+    /**
+     * Determines the size at or below which an array of the given capacity
+     * shrinks, following the policy down to the initial capacity.
+     *
+     * @param capacity Current capacity
+     * @return The size at which it shrinks, -1 if it never does
+     */
+    
+    private int shrinkAt(int capacity) {
+        
+        return capacity > floor ? policy.shrinkAt(capacity) : -1;
+    }
+    
+    /**
+     * Restores the min-heap property over the whole array by sinking every
+     * internal node, starting from the last one, in linear time.
+     */
+    
+    private void heapify() {
+        
+        for (int i = n / 2; i >= 1; i--) {
             
-            temp[i] = pq(i);
+            sink(i);
         }
-        
-        pq = temp;
     }
     
     /**
@@ -223,7 +479,7 @@ public class MinPQ<T extends Comparable<T>> {
     private boolean greater(int i, int j) {
         
         if (comparator == null) {
-        
+            
             return pq(i).compareTo(pq(j)) > 0;
         } else {
             
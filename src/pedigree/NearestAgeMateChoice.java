@@ -0,0 +1,109 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The class {@link NearestAgeMateChoice} draws a fixed number of males from
+ * the {@link MatePool} and picks the one whose age is nearest to the age of
+ * the mother plus a preferred gap, at the cost of that many draws.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class NearestAgeMateChoice implements MateChoice {
+    
+    public static final int DEFAULT_CANDIDATES = 4; // Males drawn per search
+    
+    private final int candidates; // Males drawn per search
+    private final double ageGap;  // Preferred age of the male minus hers
+    
+    /**
+     * Initializes the choice with the given number of candidates and
+     * preferred age gap.
+     *
+     * @param candidates Number of males drawn per search
+     * @param ageGap Preferred age of the male minus the age of the mother
+     * @throws IllegalArgumentException if there is not at least one
+     * candidate
+     */
+    
+    public NearestAgeMateChoice(int candidates, double ageGap) {
+        
+        if (candidates < 1) {
+            
+            throw new IllegalArgumentException("Needs a candidate");
+        }
+        
+        this.candidates = candidates;
+        this.ageGap = ageGap;
+    }
+    
+    /**
+     * Initializes the choice with the default number of candidates and no
+     * age gap.
+     */
+    
+    public NearestAgeMateChoice() {
+        
+        this(DEFAULT_CANDIDATES, 0.0);
+    }
+    
+    /**
+     * Picks, among the males drawn, the one nearest to the preferred age.
+     *
+     * @param mother The female {@link Sim} looking for a mate
+     * @param pool The males of mating age of her {@link Deme}
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return The candidate or null if the pool holds no male of positive
+     * weight
+     */
+    
+    @Override
+    public Sim choose(Sim mother, MatePool pool, double partneredWeight,
+        Random rnd) {
+        
+        Sim nearest = null;
+        double distance = Double.POSITIVE_INFINITY;
+        
+        for (int i = 0; i < candidates; i++) {
+            
+            Sim male = pool.draw(rnd, partneredWeight);
+            
+            if (male == null) {
+                
+                return null;
+            }
+            
+            // Age of the male minus hers, off the preferred gap
+            double d = Math.abs(mother.getBirthTime() - male.getBirthTime()
+                - ageGap);
+            
+            if (d < distance) {
+                
+                nearest = male;
+                distance = d;
+            }
+        }
+        
+        return nearest;
+    }
+    
+    /**
+     * Defines the string implementation of a {@link NearestAgeMateChoice}.
+     *
+     * @return String implementation of {@link NearestAgeMateChoice}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[candidates ").append(candidates).append(", gap ")
+        .append(ageGap).append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package pedigree;
+
+/**
+ * The class {@link Partnership} defines the relationship of a female and a
+ * male {@link Sim} from the time they pair up until it ends, whether by the
+ * death of either partner, by either of them leaving for another partner or
+ * by their migration. The partners only refer to their ongoing
+ * {@link Partnership}, so that ended ones do not keep former partners in
+ * memory unless the history is kept.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Partnership {
+    
+    private final Sim female;   // Female partner
+    private final Sim male;     // Male partner
+    private final double start; // Time at which the partners paired up
+    private double end;         // Time at which it ended, infinite until then
+    private int children;       // Children conceived within the Partnership
+    
+    /**
+     * Initializes a {@link Partnership} starting at the given time.
+     *
+     * @param female The female partner
+     * @param male The male partner
+     * @param start Time at which the partners pair up
+     */
+    
+    public Partnership(Sim female, Sim male, double start) {
+        
+        this.female = female;
+        this.male = male;
+        this.start = start;
+        end = Double.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Retrieves the female partner.
+     *
+     * @return The female {@link Sim}
+     */
+    
+    public Sim getFemale() {
+        
+        return female;
+    }
+    
+    /**
+     * Retrieves the male partner.
+     *
+     * @return The male {@link Sim}
+     */
+    
+    public Sim getMale() {
+        
+        return male;
+    }
+    
+    /**
+     * Retrieves the partner of the given {@link Sim}.
+     *
+     * @param sim One of the partners
+     * @return The other partner
+     */
+    
+    public Sim getPartner(Sim sim) {
+        
+        return sim == female ? male : female;
+    }
+    
+    /**
+     * Retrieves the time at which the partners paired up.
+     *
+     * @return The start time
+     */
+    
+    public double getStart() {
+        
+        return start;
+    }
+    
+    /**
+     * Retrieves the time at which the {@link Partnership} ended.
+     *
+     * @return The end time or infinity if it is ongoing
+     */
+    
+    public double getEnd() {
+        
+        return end;
+    }
+    
+    /**
+     * Ends the {@link Partnership} at the given time if it is ongoing.
+     *
+     * @param time Time at which it ends
+     */
+    
+    public void end(double time) {
+        
+        end = Math.min(end, time);
+    }
+    
+    /**
+     * Determines whether the partners are together at the given time.
+     *
+     * @param time Time at which to undertake the check
+     * @return <ul><li>{@code true} if the {@link Partnership} started and has
+     * not ended</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean isActive(double time) {
+        
+        return start <= time && time < end;
+    }
+    
+    /**
+     * Records a child conceived within the {@link Partnership}.
+     */
+    
+    public void addChild() {
+        
+        children++;
+    }
+    
+    /**
+     * Retrieves the number of children conceived within the
+     * {@link Partnership}.
+     *
+     * @return The number of children
+     */
+    
+    public int getChildren() {
+        
+        return children;
+    }
+    
+    /**
+     * Defines the string implementation of a {@link Partnership}.
+     *
+     * @return String implementation of {@link Partnership}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder(getClass().getName());
+        sb.append("[female sim.").append(female.getIdent())
+        .append(", male sim.").append(male.getIdent())
+        .append(", start ").append(start).append(", end ").append(end)
+        .append(", children ").append(children).append("]");
+        
+        return sb.toString();
+    }
+}
\ No newline at end of file
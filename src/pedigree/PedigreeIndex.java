@@ -0,0 +1,410 @@
+package pedigree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class {@link PedigreeIndex} holds the pedigree of a group of
+ * {@link Sim}s, made of the {@link Sim}s and all their ancestors, as
+ * primitive arrays indexed by dense {@code int} ids. The ids follow the
+ * order of the {@link Sim} identities, so parents always come before their
+ * children. Parents are kept in two columns and children in compressed sparse
+ * row form: the children of id {@code i} are found between
+ * {@code childStart[i]} and {@code childStart[i + 1]}.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class PedigreeIndex {
+    
+    public static final int NONE = -1; // Parent id of founders
+    
+    private final int[] ident;     // Sim identities in ascending order
+    private final double[] birth;  // Birth times
+    private final boolean[] female;
+    private final int[] mother;    // Mother ids, NONE for founders
+    private final int[] father;    // Father ids, NONE for founders
+    private final int[] childStart; // Offsets of the children of each id
+    private final int[] children;   // Children ids grouped by parent
+    private final int[] generation; // Longest path up to a founder
+    
+    /**
+     * Initializes an index over the given {@link Sim}s sorted by identity.
+     *
+     * @param sims The {@link Sim}s, closed under parenthood
+     */
+    
+    private PedigreeIndex(Sim[] sims) {
+        
+        int n = sims.length;
+        Map<Sim, Integer> ids = new HashMap<Sim, Integer>(2 * n);
+        
+        ident = new int[n];
+        birth = new double[n];
+        female = new boolean[n];
+        mother = new int[n];
+        father = new int[n];
+        generation = new int[n];
+        childStart = new int[n + 1];
+        
+        for (int i = 0; i < n; i++) {
+            
+            Sim sim = sims[i];
+            
+            ids.put(sim, i);
+            ident[i] = sim.getIdent();
+            birth[i] = sim.getBirthTime();
+            female[i] = Sim.Sex.F.equals(sim.getSex());
+            
+            if (sim.isFounder()) {
+                
+                mother[i] = father[i] = NONE;
+                continue;
+            }
+            
+            // Parents were indexed first, having lower identities
+            mother[i] = ids.get(sim.getMother());
+            father[i] = ids.get(sim.getFather());
+            generation[i] = 1 + Math.max(generation[mother[i]],
+                generation[father[i]]);
+            childStart[mother[i] + 1]++;
+            childStart[father[i] + 1]++;
+        }
+        
+        for (int i = 0; i < n; i++) {
+            
+            childStart[i + 1] += childStart[i];
+        }
+        
+        children = new int[childStart[n]];
+        
+        int[] next = Arrays.copyOf(childStart, n);
+        
+        // Children are visited in ascending order, keeping each row sorted
+        for (int i = 0; i < n; i++) {
+            
+            if (mother[i] != NONE) {
+                
+                children[next[mother[i]]++] = i;
+                children[next[father[i]]++] = i;
+            }
+        }
+    }
+    
+    /**
+     * Builds the index of the pedigree of the given {@link Sim}s, which
+     * holds them along with all their ancestors.
+     *
+     * @param group The {@link Sim}s whose pedigree is indexed
+     * @return The index of the pedigree
+     */
+    
+    public static PedigreeIndex build(Collection<Sim> group) {
+        
+        Map<Sim, Boolean> seen = new HashMap<Sim, Boolean>();
+        List<Sim> sims = new ArrayList<Sim>();
+        Deque<Sim> stack = new ArrayDeque<Sim>();
+        
+        for (Sim sim : group) {
+            
+            if (seen.put(sim, Boolean.TRUE) == null) {
+                
+                stack.push(sim);
+            }
+        }
+        
+        while (!stack.isEmpty()) {
+            
+            Sim sim = stack.pop();
+            
+            sims.add(sim);
+            
+            if (!sim.isFounder()) {
+                
+                if (seen.put(sim.getMother(), Boolean.TRUE) == null) {
+                    
+                    stack.push(sim.getMother());
+                }
+                
+                if (seen.put(sim.getFather(), Boolean.TRUE) == null) {
+                    
+                    stack.push(sim.getFather());
+                }
+            }
+        }
+        
+        Sim[] sorted = sims.toArray(new Sim[0]);
+        
+        Arrays.sort(sorted, (s1, s2) ->
+            Integer.compare(s1.getIdent(), s2.getIdent()));
+        
+        return new PedigreeIndex(sorted);
+    }
+    
+    /**
+     * Retrieves the number of {@link Sim}s in the pedigree.
+     *
+     * @return The number of {@link Sim}s
+     */
+    
+    public int size() {
+        
+        return ident.length;
+    }
+    
+    /**
+     * Retrieves the number of parent to child edges in the pedigree.
+     *
+     * @return The number of edges
+     */
+    
+    public int edgeCount() {
+        
+        return children.length;
+    }
+    
+    /**
+     * Finds the id of the {@link Sim} with the given identity.
+     *
+     * @param simIdent Identity of the {@link Sim}
+     * @return The id of the {@link Sim} or {@link #NONE} if it is not in the
+     * pedigree
+     */
+    
+    public int indexOf(int simIdent) {
+        
+        int i = Arrays.binarySearch(ident, simIdent);
+        
+        return i >= 0 ? i : NONE;
+    }
+    
+    /**
+     * Finds the id of the given {@link Sim}.
+     *
+     * @param sim {@link Sim} of interest
+     * @return The id of the {@link Sim} or {@link #NONE} if it is not in the
+     * pedigree
+     */
+    
+    public int indexOf(Sim sim) {
+        
+        return indexOf(sim.getIdent());
+    }
+    
+    /**
+     * Retrieves the identity of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The {@link Sim}'s identity
+     */
+    
+    public int getIdent(int id) {
+        
+        return ident[id];
+    }
+    
+    /**
+     * Retrieves the birth time of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The {@link Sim}'s birth time
+     */
+    
+    public double getBirthTime(int id) {
+        
+        return birth[id];
+    }
+    
+    /**
+     * Retrieves the gender of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The {@link Sim}'s gender
+     */
+    
+    public Sim.Sex getSex(int id) {
+        
+        return female[id] ? Sim.Sex.F : Sim.Sex.M;
+    }
+    
+    /**
+     * Retrieves the id of the mother of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The mother's id or {@link #NONE} for a founder
+     */
+    
+    public int getMother(int id) {
+        
+        return mother[id];
+    }
+    
+    /**
+     * Retrieves the id of the father of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The father's id or {@link #NONE} for a founder
+     */
+    
+    public int getFather(int id) {
+        
+        return father[id];
+    }
+    
+    /**
+     * Retrieves the ids of the children of the {@link Sim} with the given id
+     * within the pedigree.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The children's ids in ascending order
+     */
+    
+    public int[] getChildren(int id) {
+        
+        return Arrays.copyOfRange(children, childStart[id],
+            childStart[id + 1]);
+    }
+    
+    /**
+     * Retrieves the generation depth of the {@link Sim} with the given id,
+     * the length of its longest line of ancestry up to a founder.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The generation depth, 0 for a founder
+     */
+    
+    public int getGeneration(int id) {
+        
+        return generation[id];
+    }
+    
+    /**
+     * Finds the ancestors of the {@link Sim} with the given id.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The set of ancestor ids, excluding the {@link Sim} itself
+     */
+    
+    public BitSet ancestors(int id) {
+        
+        BitSet found = new BitSet(id);
+        int[] stack = new int[Math.max(2 * generation[id], 2)];
+        int top = 0;
+        
+        // Pushing each parent once as it is first found
+        stack[top++] = id;
+        
+        while (top > 0) {
+            
+            int i = stack[--top];
+            
+            if (mother[i] == NONE) {
+                
+                continue;
+            }
+            
+            for (int k = 0; k < 2; k++) {
+                
+                int p = k == 0 ? mother[i] : father[i];
+                
+                if (!found.get(p)) {
+                    
+                    found.set(p);
+                    
+                    if (top == stack.length) {
+                        
+                        stack = Arrays.copyOf(stack, 2 * top);
+                    }
+                    
+                    stack[top++] = p;
+                }
+            }
+        }
+        
+        return found;
+    }
+    
+    /**
+     * Finds the descendants of the {@link Sim} with the given id within the
+     * pedigree.
+     *
+     * @param id Id of the {@link Sim}
+     * @return The set of descendant ids, excluding the {@link Sim} itself
+     */
+    
+    public BitSet descendants(int id) {
+        
+        BitSet found = new BitSet(size());
+        
+        // Children have higher ids, so a single ascending sweep suffices
+        for (int c = childStart[id]; c < childStart[id + 1]; c++) {
+            
+            found.set(children[c]);
+        }
+        
+        for (int i = found.nextSetBit(0); i >= 0;
+            i = found.nextSetBit(i + 1)) {
+            
+            for (int c = childStart[i]; c < childStart[i + 1]; c++) {
+                
+                found.set(children[c]);
+            }
+        }
+        
+        return found;
+    }
+    
+    /**
+     * Finds the common ancestors of the {@link Sim}s with the given ids.
+     *
+     * @param a Id of the first {@link Sim}
+     * @param b Id of the second {@link Sim}
+     * @return The set of ids of the ancestors shared by both {@link Sim}s
+     */
+    
+    public BitSet commonAncestors(int a, int b) {
+        
+        BitSet common = ancestors(a);
+        
+        common.and(ancestors(b));
+        
+        return common;
+    }
+    
+    /**
+     * Finds the most recent common ancestors of the {@link Sim}s with the
+     * given ids, the common ancestors none of whose descendants is also a
+     * common ancestor.
+     *
+     * @param a Id of the first {@link Sim}
+     * @param b Id of the second {@link Sim}
+     * @return The set of ids of the most recent common ancestors
+     */
+    
+    public BitSet mostRecentCommonAncestors(int a, int b) {
+        
+        BitSet common = commonAncestors(a, b);
+        BitSet recent = (BitSet)common.clone();
+        
+        // A common ancestor with a common descendant has a common child
+        for (int i = common.nextSetBit(0); i >= 0;
+            i = common.nextSetBit(i + 1)) {
+            
+            if (mother[i] != NONE) {
+                
+                recent.clear(mother[i]);
+                recent.clear(father[i]);
+            }
+        }
+        
+        return recent;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,313 @@
+package pedigree;
+
+import java.util.Arrays;
+
+/**
+ * The class {@link QuantileSketch} estimates quantiles of a stream of values
+ * in bounded memory following the merging t-digest of Dunning. Values are
+ * summarized by weighted centroids, kept small near the extreme quantiles so
+ * that tails are estimated precisely. Sketches built separately can be merged.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class QuantileSketch {
+    
+    static final double DEFAULT_COMPRESSION = 100.0;
+    
+    private final double compression; // Bounds the number of centroids
+    
+    private double[] mean;   // Centroid means in ascending order
+    private double[] weight; // Centroid weights
+    private int centroids;
+    
+    private double[] buffer; // Values not yet merged into the centroids
+    private int buffered;
+    
+    private double total;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    /**
+     * Initializes an empty sketch with the given compression.
+     *
+     * @param compression Compression factor, higher values keep more
+     * centroids and give more precise estimates
+     * @throws IllegalArgumentException if compression is not positive
+     */
+    
+    public QuantileSketch(double compression) {
+        
+        if (!(compression > 0.0)) {
+            
+            throw new IllegalArgumentException("Non-positive compression");
+        }
+        
+        this.compression = compression;
+        
+        int capacity = (int)Math.ceil(compression) + 1;
+        
+        mean = new double[capacity];
+        weight = new double[capacity];
+        buffer = new double[5 * capacity];
+    }
+    
+    /**
+     * Initializes an empty sketch with default compression.
+     */
+    
+    public QuantileSketch() {
+        
+        this(DEFAULT_COMPRESSION);
+    }
+    
+    /**
+     * Retrieves the number of values summarized by this sketch.
+     *
+     * @return The number of values added, including merged sketches
+     */
+    
+    public long size() {
+        
+        return (long)total;
+    }
+    
+    /**
+     * Adds a value to this sketch.
+     *
+     * @param x Value to add
+     */
+    
+    public void add(double x) {
+        
+        if (buffered == buffer.length) {
+            
+            compress();
+        }
+        
+        buffer[buffered++] = x;
+        total++;
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+    }
+    
+    /**
+     * Adds every value summarized by the given sketch to this sketch.
+     *
+     * @param other Sketch to merge into this one
+     */
+    
+    public void merge(QuantileSketch other) {
+        
+        other.compress();
+        
+        if (other.centroids == 0) {
+            
+            return;
+        }
+        
+        compress();
+        
+        double[] m = Arrays.copyOf(mean, centroids + other.centroids);
+        double[] w = Arrays.copyOf(weight, m.length);
+        
+        System.arraycopy(other.mean, 0, m, centroids, other.centroids);
+        System.arraycopy(other.weight, 0, w, centroids, other.centroids);
+        
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        
+        mergeCentroids(m, w, centroids, m.length);
+    }
+    
+    /**
+     * Estimates the value below which the given fraction of the values lie.
+     *
+     * @param q Fraction of interest between 0 and 1
+     * @return The estimated quantile or NaN if the sketch is empty
+     * @throws IllegalArgumentException if q is not between 0 and 1
+     */
+    
+    public double quantile(double q) {
+        
+        if (q < 0.0 || q > 1.0) {
+            
+            throw new IllegalArgumentException("Quantile out of [0, 1]");
+        }
+        
+        compress();
+        
+        if (centroids == 0) {
+            
+            return Double.NaN;
+        }
+        
+        double index = q * total;
+        
+        // Left tail between the minimum and the first centroid
+        if (index < weight[0] / 2) {
+            
+            return min + (mean[0] - min) * index / (weight[0] / 2);
+        }
+        
+        double cumulative = weight[0] / 2;
+        
+        for (int i = 0; i < centroids - 1; i++) {
+            
+            double dw = (weight[i] + weight[i + 1]) / 2;
+            
+            if (cumulative + dw > index) {
+                
+                return mean[i]
+                    + (mean[i + 1] - mean[i]) * (index - cumulative) / dw;
+            }
+            
+            cumulative += dw;
+        }
+        
+        // Right tail between the last centroid and the maximum
+        double last = weight[centroids - 1] / 2;
+        
+        return last == 0.0 ? max : mean[centroids - 1]
+            + (max - mean[centroids - 1])
+            * Math.min((index - cumulative) / last, 1.0);
+    }
+    
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    
+    private void compress() {
+        
+        if (buffered == 0) {
+            
+            return;
+        }
+        
+        int n = centroids + buffered;
+        double[] m = Arrays.copyOf(mean, n);
+        double[] w = Arrays.copyOf(weight, n);
+        
+        Arrays.sort(buffer, 0, buffered);
+        
+        for (int i = 0; i < buffered; i++) {
+            
+            m[centroids + i] = buffer[i];
+            w[centroids + i] = 1.0;
+        }
+        
+        mergeCentroids(m, w, centroids, n);
+        buffered = 0;
+    }
+    
+    /**
+     * Replaces the centroids by the merge of the given centroids, adjacent
+     * centroids being combined as long as they fit within one unit of the
+     * {@code k1} scale function.
+     *
+     * @param m Means of the centroids to merge, in two ascending runs
+     * @param w Weights of the centroids to merge
+     * @param split Start of the second run
+     * @param n Number of centroids to merge
+     */
+    
+    private void mergeCentroids(double[] m, double[] w, int split, int n) {
+        
+        mergeByMean(m, w, split, n);
+        
+        double weightSoFar = 0.0;
+        double limit = total * qLimit(0.0);
+        int k = 0;
+        
+        mean[0] = m[0];
+        weight[0] = w[0];
+        
+        for (int i = 1; i < n; i++) {
+            
+            if (weightSoFar + weight[k] + w[i] <= limit) {
+                
+                // Absorbing into the current centroid
+                weight[k] += w[i];
+                mean[k] += (m[i] - mean[k]) * w[i] / weight[k];
+            } else {
+                
+                weightSoFar += weight[k];
+                limit = total * qLimit(weightSoFar / total);
+                
+                if (++k == mean.length) {
+                    
+                    mean = Arrays.copyOf(mean, 2 * k);
+                    weight = Arrays.copyOf(weight, 2 * k);
+                }
+                
+                mean[k] = m[i];
+                weight[k] = w[i];
+            }
+        }
+        
+        centroids = k + 1;
+    }
+    
+    /**
+     * Computes the largest quantile a centroid starting at the given quantile
+     * may reach, one unit further on the {@code k1} scale function.
+     *
+     * @param q Quantile at which the centroid starts
+     * @return The quantile at which the centroid must end
+     */
+    
+    private double qLimit(double q) {
+        
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        
+        if (k >= compression / 4) {
+            
+            return 1.0;
+        }
+        
+        return (Math.sin(2 * Math.PI * k / compression) + 1) / 2;
+    }
+    
+    /**
+     * Sorts the given centroids by ascending mean, merging in linear time
+     * the two runs already sorted by ascending mean.
+     *
+     * @param m Means of the centroids
+     * @param w Weights of the centroids
+     * @param split Start of the second run
+     * @param n Number of centroids
+     */
+    
+    private static void mergeByMean(double[] m, double[] w, int split,
+        int n) {
+        
+        double[] lm = Arrays.copyOf(m, split);
+        double[] lw = Arrays.copyOf(w, split);
+        int i = 0;
+        int j = split;
+        int k = 0;
+        
+        // The merge stays behind the second run, which is read in place
+        while (i < split && j < n) {
+            
+            if (lm[i] <= m[j]) {
+                
+                m[k] = lm[i];
+                w[k++] = lw[i++];
+            } else {
+                
+                m[k] = m[j];
+                w[k++] = w[j++];
+            }
+        }
+        
+        // What is left of the second run is already in place
+        while (i < split) {
+            
+            m[k] = lm[i];
+            w[k++] = lw[i++];
+        }
+    }
+}
\ No newline at end of file
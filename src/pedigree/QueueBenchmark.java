@@ -0,0 +1,239 @@
+package pedigree;
+
+import java.io.PrintStream;
+
+import java.util.Random;
+
+/**
+ * The class {@link QueueBenchmark} times the event queues on workloads
+ * dominated by {@code delMin}, a {@link MinPQ} of {@link Event}s against a
+ * {@link DoubleKeyMinPQ} keyed by their time. In the hold workload, each
+ * {@code delMin} is followed by the insertion of an event drawn a random
+ * exponential time after the one removed, as a simulation does, so the
+ * queue keeps its size. In the drain workload, the queue is filled with
+ * events at random times then emptied. Both queues are fed the same events
+ * from the same seed, and each workload keeps the best of several trials
+ * after a warm-up, so that the compiler has settled on both queues.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class QueueBenchmark {
+    
+    static final int DEFAULT_SIZE = 1000000;       // Events held by the queues
+    static final int DEFAULT_OPERATIONS = 2000000; // delMin calls per trial
+    static final int DEFAULT_TRIALS = 3;
+    
+    private static final long SEED = 42L;
+    
+    private final int size;
+    private final int operations;
+    private final Event[] events; // Events initially in the queues
+    private final double[] gaps;  // Time to each inserted event
+    
+    /**
+     * Initializes a benchmark of queues holding the given number of events
+     * over the given number of {@code delMin} calls per trial.
+     *
+     * @param size Number of events held by the queues
+     * @param operations Number of {@code delMin} calls per trial
+     * @throws IllegalArgumentException if size or operations is not positive
+     */
+    
+    public QueueBenchmark(int size, int operations) {
+        
+        if (size < 1 || operations < 1) {
+            
+            throw new IllegalArgumentException("No events to time");
+        }
+        
+        this.size = size;
+        this.operations = operations;
+        
+        Random rnd = new Random(SEED);
+        events = new Event[size];
+        gaps = new double[operations];
+        
+        for (int i = 0; i < size; i++) {
+            
+            events[i] = new Death(null, rnd.nextDouble() * size);
+        }
+        
+        for (int i = 0; i < operations; i++) {
+            
+            gaps[i] = -Math.log(1.0 - rnd.nextDouble()) * size;
+        }
+    }
+    
+    /**
+     * Times the hold workload on a {@link MinPQ}.
+     *
+     * @return The time taken, in nanoseconds
+     */
+    
+    public long holdMinPQ() {
+        
+        MinPQ<Event> pq = new MinPQ<Event>(size);
+        
+        for (Event e : events) {
+            
+            pq.insert(e);
+        }
+        
+        long start = System.nanoTime();
+        
+        for (int i = 0; i < operations; i++) {
+            
+            Event e = pq.delMin();
+            pq.insert(new Death(null, e.getTime() + gaps[i]));
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * Times the hold workload on a {@link DoubleKeyMinPQ}.
+     *
+     * @return The time taken, in nanoseconds
+     */
+    
+    public long holdDoubleKey() {
+        
+        DoubleKeyMinPQ<Event> pq = new DoubleKeyMinPQ<Event>(size);
+        
+        for (Event e : events) {
+            
+            pq.insert(e, e.getTime());
+        }
+        
+        long start = System.nanoTime();
+        
+        for (int i = 0; i < operations; i++) {
+            
+            double time = pq.peekKey() + gaps[i];
+            
+            pq.delMin();
+            pq.insert(new Death(null, time), time);
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * Times the drain workload on a {@link MinPQ}, filling and emptying the
+     * queue until the number of {@code delMin} calls is reached.
+     *
+     * @return The time taken, in nanoseconds
+     */
+    
+    public long drainMinPQ() {
+        
+        long start = System.nanoTime();
+        
+        for (int done = 0; done < operations; done += size) {
+            
+            MinPQ<Event> pq = new MinPQ<Event>(size);
+            
+            for (Event e : events) {
+                
+                pq.insert(e);
+            }
+            
+            while (!pq.isEmpty()) {
+                
+                pq.delMin();
+            }
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * Times the drain workload on a {@link DoubleKeyMinPQ}, filling and
+     * emptying the queue until the number of {@code delMin} calls is
+     * reached.
+     *
+     * @return The time taken, in nanoseconds
+     */
+    
+    public long drainDoubleKey() {
+        
+        long start = System.nanoTime();
+        
+        for (int done = 0; done < operations; done += size) {
+            
+            DoubleKeyMinPQ<Event> pq = new DoubleKeyMinPQ<Event>(size);
+            
+            for (Event e : events) {
+                
+                pq.insert(e, e.getTime());
+            }
+            
+            while (!pq.isEmpty()) {
+                
+                pq.delMin();
+            }
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
+    /**
+     * Runs both workloads on both queues, alternating the queues over the
+     * given number of trials after as many warm-up trials, and prints the
+     * best time per {@code delMin} of each queue and the speedup of the
+     * {@link DoubleKeyMinPQ}.
+     *
+     * @param trials Number of timed trials
+     * @param out The stream to print to
+     */
+    
+    public void run(int trials, PrintStream out) {
+        
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE,
+            Long.MAX_VALUE};
+        
+        for (int t = -trials; t < trials; t++) {
+            
+            long[] times = {holdMinPQ(), holdDoubleKey(), drainMinPQ(),
+                drainDoubleKey()};
+            
+            // Warm-up trials are not kept
+            for (int i = 0; t >= 0 && i < times.length; i++) {
+                
+                best[i] = Math.min(best[i], times[i]);
+            }
+        }
+        
+        int drained = (operations + size - 1) / size * size;
+        
+        out.println("workload,minPQ,doubleKeyMinPQ,speedup");
+        out.printf("hold,%.1f,%.1f,%.2f%n", (double)best[0] / operations,
+        (double)best[1] / operations, (double)best[0] / best[1]);
+        out.printf("drain,%.1f,%.1f,%.2f%n", (double)best[2] / drained,
+        (double)best[3] / drained, (double)best[2] / best[3]);
+    }
+    
+    /**
+     * Runs the benchmark and prints the nanoseconds per {@code delMin} of
+     * each queue.
+     *
+     * @param args <ul><li>{@code args[0]} is an optional {@code int} that
+     * holds the number of events held by the queues</li><li>{@code args[1]}
+     * is an optional {@code int} that holds the number of {@code delMin}
+     * calls per trial</li><li>{@code args[2]} is an optional {@code int}
+     * that holds the number of timed trials</li></ul>
+     */
+    
+    public static void main(String[] args) {
+        
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) :
+            DEFAULT_OPERATIONS;
+        int trials = args.length > 2 ? Integer.parseInt(args[2]) :
+            DEFAULT_TRIALS;
+        
+        new QueueBenchmark(size, operations).run(trials, System.out);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+package pedigree;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The class {@link ReplicateAggregator} summarizes the series of many
+ * {@link Simulation} runs on a common grid of times. Each series of a run is
+ * read as a step function at every grid time and the value is added to a
+ * {@link QuantileSketch} for that series and time, so runs need not be kept
+ * once added. Quantile bands such as the median and the 5% and 95% quantiles
+ * are then estimated at every grid time.
+ *
+ * <p>The population size holds from the time it was recorded until the next
+ * record, and past the end of the series only for a population which died
+ * out, whose size of 0 holds until the end of the grid. The number of
+ * lineages recorded at a coalescence holds for the times preceding it down
+ * to the previous coalescence, and the whole sample holds after the last
+ * one, so that the bands account for every run.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class ReplicateAggregator {
+    
+    private final double[] grid; // Common times, in ascending order
+    private final Map<String, QuantileSketch[]> sketches;
+    private int runs;
+    
+    /**
+     * Initializes an aggregator over the given number of evenly spaced times
+     * between 0 and the given maximum time.
+     *
+     * @param tMax Maximum time of the grid
+     * @param points Number of grid times
+     * @throws IllegalArgumentException if there are fewer than 2 grid times
+     * or if the maximum time is not positive
+     */
+    
+    public ReplicateAggregator(double tMax, int points) {
+        
+        if (points < 2 || !(tMax > 0.0)) {
+            
+            throw new IllegalArgumentException("Degenerate time grid");
+        }
+        
+        grid = new double[points];
+        
+        for (int i = 0; i < points; i++) {
+            
+            grid[i] = tMax * i / (points - 1);
+        }
+        
+        sketches = new LinkedHashMap<String, QuantileSketch[]>();
+        sketches.put(Simulation.POP_GROWTH, newSketches(points));
+        sketches.put(Simulation.COALESCENCE_F, newSketches(points));
+        sketches.put(Simulation.COALESCENCE_M, newSketches(points));
+    }
+    
+    /**
+     * Retrieves the common grid of times.
+     *
+     * @return A copy of the grid times, in ascending order
+     */
+    
+    public double[] getGrid() {
+        
+        return grid.clone();
+    }
+    
+    /**
+     * Retrieves the number of runs added, including merged aggregators.
+     *
+     * @return The number of runs
+     */
+    
+    public int getRuns() {
+        
+        return runs;
+    }
+    
+    /**
+     * Adds the series of the last {@link Simulation}.
+     */
+    
+    public void addLastRun() {
+        
+        addRun(Simulation.getPopGrowth(), Simulation.getCoalescenceF(),
+        Simulation.getCoalescenceM(), Simulation.getLineageF().getSampleSize(),
+        Simulation.getLineageM().getSampleSize());
+    }
+    
+    /**
+     * Adds the series of a run, each sorted by ascending time, with the
+     * sizes of the samples whose lineages were traced.
+     *
+     * @param popGrowth Population size by time
+     * @param coalescenceF Number of maternal lineages by coalescence time
+     * @param coalescenceM Number of paternal lineages by coalescence time
+     * @param sampleF Number of females traced
+     * @param sampleM Number of males traced
+     */
+    
+    public void addRun(Map<Double, Integer> popGrowth,
+        Map<Double, Integer> coalescenceF, Map<Double, Integer> coalescenceM,
+        int sampleF, int sampleM) {
+        
+        addForward(sketches.get(Simulation.POP_GROWTH), popGrowth);
+        addBackward(sketches.get(Simulation.COALESCENCE_F), coalescenceF,
+        sampleF);
+        addBackward(sketches.get(Simulation.COALESCENCE_M), coalescenceM,
+        sampleM);
+        runs++;
+    }
+    
+    /**
+     * Adds every run summarized by the given aggregator to this one.
+     *
+     * @param other Aggregator over the same grid
+     * @throws IllegalArgumentException if the grids differ
+     */
+    
+    public void merge(ReplicateAggregator other) {
+        
+        if (!Arrays.equals(grid, other.grid)) {
+            
+            throw new IllegalArgumentException("Different time grids");
+        }
+        
+        for (Map.Entry<String, QuantileSketch[]> entry : sketches.entrySet()) {
+            
+            QuantileSketch[] theirs = other.sketches.get(entry.getKey());
+            
+            for (int i = 0; i < grid.length; i++) {
+                
+                entry.getValue()[i].merge(theirs[i]);
+            }
+        }
+        
+        runs += other.runs;
+    }
+    
+    /**
+     * Estimates the given quantile of a series at every grid time.
+     *
+     * @param series Name of the series
+     * @param q Fraction of interest between 0 and 1
+     * @return The quantile at every grid time, NaN where no run contributed
+     * @throws IllegalArgumentException if the series is unknown
+     */
+    
+    public double[] quantiles(String series, double q) {
+        
+        QuantileSketch[] s = sketches.get(series);
+        
+        if (s == null) {
+            
+            throw new IllegalArgumentException("Unknown series " + series);
+        }
+        
+        double[] values = new double[grid.length];
+        
+        for (int i = 0; i < grid.length; i++) {
+            
+            values[i] = s[i].quantile(q);
+        }
+        
+        return values;
+    }
+    
+    /**
+     * Calculates the largest gap between the medians of a series of this
+     * aggregator and of the given reference over the grid times where both
+     * are defined, relative to the reference median.
+     *
+     * @param reference Aggregator over the same grid to compare against
+     * @param series Name of the series
+     * @return The largest relative gap, 0 if no grid time is defined in both
+     * @throws IllegalArgumentException if the series is unknown
+     */
+    
+    public double getMedianGap(ReplicateAggregator reference, String series) {
+        
+        double[] r = reference.quantiles(series, 0.5);
+        double[] m = quantiles(series, 0.5);
+        double gap = 0.0;
+        
+        for (int i = 0; i < r.length && i < m.length; i++) {
+            
+            if (r[i] > 0.0 && !Double.isNaN(m[i])) {
+                
+                gap = Math.max(gap, Math.abs(m[i] - r[i]) / r[i]);
+            }
+        }
+        
+        return gap;
+    }
+    
+    /**
+     * Retrieves the names of the aggregated series.
+     *
+     * @return The series names
+     */
+    
+    public Iterable<String> getSeries() {
+        
+        return sketches.keySet();
+    }
+    
+    /**
+     * Adds a series holding its value from each time until the next one. A
+     * series ending on 0 holds it until the end of the grid.
+     *
+     * @param s Sketches of the series by grid time
+     * @param data Series of value pairs sorted by ascending time
+     */
+    
+    private void addForward(QuantileSketch[] s, Map<Double, Integer> data) {
+        
+        Iterator<Map.Entry<Double, Integer>> it = data.entrySet().iterator();
+        Map.Entry<Double, Integer> current = null;
+        Map.Entry<Double, Integer> next = it.hasNext() ? it.next() : null;
+        Map.Entry<Double, Integer> last = lastEntry(data);
+        double end = last == null ? Double.NEGATIVE_INFINITY :
+            last.getValue() == 0 ? Double.POSITIVE_INFINITY : last.getKey();
+        
+        for (int i = 0; i < grid.length && grid[i] <= end; i++) {
+            
+            while (next != null && next.getKey() <= grid[i]) {
+                
+                current = next;
+                next = it.hasNext() ? it.next() : null;
+            }
+            
+            if (current != null) {
+                
+                s[i].add(current.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Adds a series holding its value from each time back to the previous
+     * one, the sample size holding after the last one.
+     *
+     * @param s Sketches of the series by grid time
+     * @param data Series of value pairs sorted by ascending time
+     * @param sample Number of lineages traced back from the end of the run
+     */
+    
+    private void addBackward(QuantileSketch[] s, Map<Double, Integer> data,
+        int sample) {
+        
+        Iterator<Map.Entry<Double, Integer>> it = data.entrySet().iterator();
+        Map.Entry<Double, Integer> next = it.hasNext() ? it.next() : null;
+        
+        // Times before the first coalescence hold the founding lineages
+        for (int i = 0; i < grid.length; i++) {
+            
+            while (next != null && next.getKey() < grid[i]) {
+                
+                next = it.hasNext() ? it.next() : null;
+            }
+            
+            s[i].add(next != null ? next.getValue() : sample);
+        }
+    }
+    
+    /**
+     * Retrieves the last value pair of a series.
+     *
+     * @param data Series of value pairs sorted by ascending time
+     * @return The last value pair or null if the series is empty
+     */
+    
+    private static Map.Entry<Double, Integer> lastEntry(
+        Map<Double, Integer> data) {
+        
+        Map.Entry<Double, Integer> last = null;
+        
+        for (Map.Entry<Double, Integer> e : data.entrySet()) {
+            
+            last = e;
+        }
+        
+        return last;
+    }
+    
+    /**
+     * Creates one empty sketch per grid time.
+     *
+     * @param points Number of grid times
+     * @return The sketches
+     */
+    
+    private static QuantileSketch[] newSketches(int points) {
+        
+        QuantileSketch[] s = new QuantileSketch[points];
+        
+        for (int i = 0; i < points; i++) {
+            
+            s[i] = new QuantileSketch();
+        }
+        
+        return s;
+    }
+}
\ No newline at end of file
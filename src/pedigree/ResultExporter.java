@@ -0,0 +1,585 @@
+package pedigree;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Map;
+
+/**
+ * The class {@link ResultExporter} writes the series of the last
+ * {@link Simulation} along with the parameters of the run to files, either in
+ * a compact columnar binary format or as CSV. Both formats are encoded into a
+ * reused buffer written through a {@link FileChannel}. The quantile bands of
+ * replicated runs can be written as CSV as well.
+ *
+ * <p>The binary format, in big-endian order, is made of the magic number
+ * {@code PEDG}, the format version, the run metadata (seed, founders,
+ * maximum time, demes, migration rate, death rate, accident rate, loyalty
+ * factor, average lifetime offspring and age scale) and the number of series.
+ * Each series follows with its UTF-8 name preceded by its length, its number
+ * of value pairs, the column of {@code double} times and the column of
+ * {@code int} counts.</p>
+ *
+ * <p>A {@link PedigreeIndex} can be written in a compact binary graph format
+ * made of the magic number {@code PEDI}, the format version, the number of
+ * {@link Sim}s and the columns of their identities, birth times, genders
+ * ({@code 0} for females, {@code 1} for males), mother ids and father ids, ids
+ * being positions in the columns and {@code -1} standing for no parent. It can
+ * also be written as a plain edge list of {@code parent child} identity pairs
+ * for external graph tools.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class ResultExporter {
+    
+    static final int MAGIC = 0x50454447; // "PEDG"
+    static final int VERSION = 1;
+    static final int PEDIGREE_MAGIC = 0x50454449; // "PEDI"
+    static final int PEDIGREE_VERSION = 1;
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long SCALE = 1000000L; // Six decimals for CSV times
+    
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    
+    /**
+     * Opens the given file for writing, replacing any previous content.
+     *
+     * @param file Path of the file to write
+     * @throws IOException if the file could not be opened
+     */
+    
+    private ResultExporter(Path file) throws IOException {
+        
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    
+    /**
+     * Writes the series and parameters of the last {@link Simulation} to the
+     * given file in the columnar binary format.
+     *
+     * @param file Path of the file to write
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void writeBinary(Path file) throws IOException {
+        
+        ResultExporter out = new ResultExporter(file);
+        
+        try {
+            
+            AgeModel model = Simulation.getModel();
+            GompertzMakehamModel gm = gompertzMakeham(model);
+            
+            out.reserve(5 * Integer.BYTES + Long.BYTES + 7 * Double.BYTES);
+            out.buffer.putInt(MAGIC).putInt(VERSION)
+            .putLong(Simulation.getSeed())
+            .putInt(Simulation.getFounders())
+            .putDouble(Simulation.getMaxTime())
+            .putInt(Simulation.getDemeCount())
+            .putDouble(Simulation.getMigrationRate())
+            .putDouble(gm != null ? gm.getDeathRate() : Double.NaN)
+            .putDouble(gm != null ? gm.getAccidentRate() : Double.NaN)
+            .putDouble(model.getLoyaltyFactor())
+            .putDouble(model.getAvgLifetimeOffspring())
+            .putDouble(gm != null ? gm.getAgeScale() : Double.NaN)
+            .putInt(3);
+            
+            out.writeBinarySeries(Simulation.POP_GROWTH,
+            Simulation.getPopGrowth());
+            out.writeBinarySeries(Simulation.COALESCENCE_F,
+            Simulation.getCoalescenceF());
+            out.writeBinarySeries(Simulation.COALESCENCE_M,
+            Simulation.getCoalescenceM());
+        } finally {
+            
+            out.close();
+        }
+    }
+    
+    /**
+     * Writes the series and parameters of the last {@link Simulation} to the
+     * given file as CSV. The parameters are written as leading comment lines
+     * followed by one {@code series,time,count} row per value pair.
+     *
+     * @param file Path of the file to write
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void writeCsv(Path file) throws IOException {
+        
+        ResultExporter out = new ResultExporter(file);
+        
+        try {
+            
+            AgeModel model = Simulation.getModel();
+            GompertzMakehamModel gm = gompertzMakeham(model);
+            
+            out.putAscii("# seed=" + Simulation.getSeed()
+            + "\n# founders=" + Simulation.getFounders()
+            + "\n# maxTime=" + Simulation.getMaxTime()
+            + "\n# demes=" + Simulation.getDemeCount()
+            + "\n# migrationRate=" + Simulation.getMigrationRate()
+            + "\n# ageModel=" + model.getClass().getSimpleName()
+            + "\n# scenarioChanges=" + Simulation.getScenarioChanges()
+            + "\n# carryingCapacity=" + Simulation.getCarryingCapacity()
+            + (gm == null ? "" : "\n# deathRate=" + gm.getDeathRate()
+                + "\n# accidentRate=" + gm.getAccidentRate())
+            + "\n# loyaltyFactor=" + model.getLoyaltyFactor()
+            + "\n# avgLifetimeOffspring=" + model.getAvgLifetimeOffspring()
+            + (gm == null ? "" : "\n# ageScale=" + gm.getAgeScale())
+            + lineageSummary("F", Simulation.getLineageF())
+            + lineageSummary("M", Simulation.getLineageM())
+            + ancestrySummary(Simulation.getAncestry())
+            + "\n# mateExclusion=" + Simulation.getMateExclusion()
+            + "\n# relativesRejected=" + Simulation.getRelativesRejected()
+            + "\n# mateChoice=" + Simulation.getMateChoice()
+            + "\n# mateSearchesCut=" + Simulation.getMateSearchesCut()
+            + "\n# partnerships=" + Simulation.getPartnershipCount()
+            + "\n# breakups=" + Simulation.getBreakups()
+            + "\n# halfSiblingRate=" + Simulation.getHalfSiblingRate()
+            + "\n# eventsProcessed=" + Simulation.getEventsProcessed()
+            + "\n# eventsCancelled=" + Simulation.getEventsCancelled()
+            + "\n# reproductionChainsCut="
+            + Simulation.getReproductionChainsCut()
+            + "\n# peakQueueSize=" + Simulation.getPeakQueueSize()
+            + "\n# queuePolicy=" + Simulation.getQueuePolicy()
+            + "\n# queueResizes=" + Simulation.getQueueResizes()
+            + "\n# queueBytesCopied=" + Simulation.getQueueBytesCopied()
+            + "\n# meanBirthInbreeding=" + Simulation.getMeanBirthInbreeding()
+            + "\nseries,time,count\n");
+            
+            out.writeCsvSeries(Simulation.POP_GROWTH,
+            Simulation.getPopGrowth());
+            out.writeCsvSeries(Simulation.COALESCENCE_F,
+            Simulation.getCoalescenceF());
+            out.writeCsvSeries(Simulation.COALESCENCE_M,
+            Simulation.getCoalescenceM());
+        } finally {
+            
+            out.close();
+        }
+    }
+    
+    /**
+     * Writes the quantile bands of the given replicates to the given file as
+     * CSV, with one {@code series,time,p05,median,p95} row per grid time
+     * reached by at least one run.
+     *
+     * @param file Path of the file to write
+     * @param replicates Aggregated series of the replicates
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void writeBandsCsv(Path file, ReplicateAggregator replicates)
+        throws IOException {
+        
+        ResultExporter out = new ResultExporter(file);
+        
+        try {
+            
+            double[] grid = replicates.getGrid();
+            
+            out.putAscii("# runs=" + replicates.getRuns()
+            + "\nseries,time,p05,median,p95\n");
+            
+            for (String label : replicates.getSeries()) {
+                
+                byte[] prefix = (label + ",").getBytes(StandardCharsets.UTF_8);
+                double[] low = replicates.quantiles(label, 0.05);
+                double[] median = replicates.quantiles(label, 0.5);
+                double[] high = replicates.quantiles(label, 0.95);
+                
+                for (int i = 0; i < grid.length; i++) {
+                    
+                    if (Double.isNaN(median[i])) {
+                        
+                        continue;
+                    }
+                    
+                    out.reserve(prefix.length + 4 * 48 + 4);
+                    out.buffer.put(prefix);
+                    out.putFixed(grid[i]);
+                    out.buffer.put((byte)',');
+                    out.putFixed(low[i]);
+                    out.buffer.put((byte)',');
+                    out.putFixed(median[i]);
+                    out.buffer.put((byte)',');
+                    out.putFixed(high[i]);
+                    out.buffer.put((byte)'\n');
+                }
+            }
+        } finally {
+            
+            out.close();
+        }
+    }
+    
+    /**
+     * Writes the given pedigree to the given file in the binary graph format.
+     *
+     * @param file Path of the file to write
+     * @param pedigree The pedigree to write
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void writePedigree(Path file, PedigreeIndex pedigree)
+        throws IOException {
+        
+        ResultExporter out = new ResultExporter(file);
+        
+        try {
+            
+            int n = pedigree.size();
+            
+            out.reserve(3 * Integer.BYTES);
+            out.buffer.putInt(PEDIGREE_MAGIC).putInt(PEDIGREE_VERSION)
+            .putInt(n);
+            
+            for (int i = 0; i < n; i++) {
+                
+                out.reserve(Integer.BYTES);
+                out.buffer.putInt(pedigree.getIdent(i));
+            }
+            
+            for (int i = 0; i < n; i++) {
+                
+                out.reserve(Double.BYTES);
+                out.buffer.putDouble(pedigree.getBirthTime(i));
+            }
+            
+            for (int i = 0; i < n; i++) {
+                
+                out.reserve(1);
+                out.buffer.put((byte)(Sim.Sex.F.equals(pedigree.getSex(i)) ?
+                    0 : 1));
+            }
+            
+            for (int i = 0; i < n; i++) {
+                
+                out.reserve(Integer.BYTES);
+                out.buffer.putInt(pedigree.getMother(i));
+            }
+            
+            for (int i = 0; i < n; i++) {
+                
+                out.reserve(Integer.BYTES);
+                out.buffer.putInt(pedigree.getFather(i));
+            }
+        } finally {
+            
+            out.close();
+        }
+    }
+    
+    /**
+     * Writes the given pedigree to the given file as an edge list, with one
+     * {@code parent child} line of {@link Sim} identities per edge following
+     * a comment line.
+     *
+     * @param file Path of the file to write
+     * @param pedigree The pedigree to write
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void writeEdgeList(Path file, PedigreeIndex pedigree)
+        throws IOException {
+        
+        ResultExporter out = new ResultExporter(file);
+        
+        try {
+            
+            out.putAscii("# parent child\n");
+            
+            for (int i = 0; i < pedigree.size(); i++) {
+                
+                if (pedigree.getMother(i) == PedigreeIndex.NONE) {
+                    
+                    continue;
+                }
+                
+                int child = pedigree.getIdent(i);
+                
+                // Two lines of up to 11 characters per identity
+                out.reserve(2 * (2 * 11 + 2));
+                out.putLong(pedigree.getIdent(pedigree.getMother(i)));
+                out.buffer.put((byte)' ');
+                out.putLong(child);
+                out.buffer.put((byte)'\n');
+                out.putLong(pedigree.getIdent(pedigree.getFather(i)));
+                out.buffer.put((byte)' ');
+                out.putLong(child);
+                out.buffer.put((byte)'\n');
+            }
+        } finally {
+            
+            out.close();
+        }
+    }
+    
+    /**
+     * Retrieves the Gompertz-Makeham parameters of a model, the only ones
+     * the exports hold beyond the common factors.
+     *
+     * @param model The model of interest
+     * @return The model as a {@link GompertzMakehamModel} or null if it is
+     * another kind of {@link AgeModel}
+     */
+    
+    private static GompertzMakehamModel gompertzMakeham(AgeModel model) {
+        
+        return model instanceof GompertzMakehamModel ?
+            (GompertzMakehamModel)model : null;
+    }
+    
+    /**
+     * Describes the sample of traced lineages as CSV comment lines.
+     *
+     * @param suffix Suffix of the keys, {@code F} or {@code M}
+     * @param lineage The traced lineages
+     * @return The comment lines, each preceded by a newline
+     */
+    
+    private static String lineageSummary(String suffix, Coalescence lineage) {
+        
+        return "\n# sample" + suffix + "=" + lineage.getSampleSize()
+        + "\n# population" + suffix + "=" + lineage.getPopulationSize()
+        + "\n# tmrca" + suffix + "=" + lineage.getTmrca()
+        + "\n# mrcaConfidence" + suffix + "=" + lineage.getMrcaConfidence();
+    }
+    
+    /**
+     * Describes the biparental ancestry as CSV comment lines.
+     *
+     * @param ancestry The traced ancestry or null if it was not traced
+     * @return The comment lines, each preceded by a newline
+     */
+    
+    private static String ancestrySummary(Ancestry ancestry) {
+        
+        if (ancestry == null) {
+            
+            return "";
+        }
+        
+        return "\n# ancestryLiving=" + ancestry.getLiving()
+        + "\n# tmrcaBiparental=" + ancestry.getTmrca()
+        + "\n# identicalAncestorsPoint="
+        + ancestry.getIdenticalAncestorsPoint();
+    }
+    
+    /**
+     * Writes a series in the columnar binary format.
+     *
+     * @param label Name of the series
+     * @param mapData {@link Map} holding the series of value pairs
+     * @throws IOException if the series could not be written
+     */
+    
+    private void writeBinarySeries(String label, Map<Double, Integer> mapData)
+        throws IOException {
+        
+        byte[] name = label.getBytes(StandardCharsets.UTF_8);
+        
+        reserve(2 * Integer.BYTES + name.length);
+        buffer.putInt(name.length).put(name).putInt(mapData.size());
+        
+        // Column of times followed by the column of counts
+        for (double x : mapData.keySet()) {
+            
+            reserve(Double.BYTES);
+            buffer.putDouble(x);
+        }
+        
+        for (int y : mapData.values()) {
+            
+            reserve(Integer.BYTES);
+            buffer.putInt(y);
+        }
+    }
+    
+    /**
+     * Writes a series as CSV rows.
+     *
+     * @param label Name of the series
+     * @param mapData {@link Map} holding the series of value pairs
+     * @throws IOException if the series could not be written
+     */
+    
+    private void writeCsvSeries(String label, Map<Double, Integer> mapData)
+        throws IOException {
+        
+        byte[] prefix = (label + ",").getBytes(StandardCharsets.UTF_8);
+        
+        for (Map.Entry<Double, Integer> entry : mapData.entrySet()) {
+            
+            // Prefix, up to 48 characters per number, comma and newline
+            reserve(prefix.length + 2 * 48 + 2);
+            buffer.put(prefix);
+            putFixed(entry.getKey());
+            buffer.put((byte)',');
+            putLong(entry.getValue());
+            buffer.put((byte)'\n');
+        }
+    }
+    
+    /**
+     * Encodes a {@code double} with a fixed number of decimals without going
+     * through a {@link java.text.Format}. Values too large to be scaled
+     * exactly, infinities and NaN fall back on {@link Double#toString}.
+     *
+     * @param v Value to encode
+     * @throws IOException if the buffer could not be written
+     */
+    
+    private void putFixed(double v) throws IOException {
+        
+        if (!(Math.abs(v) < (double)(Long.MAX_VALUE / SCALE))) {
+            
+            putAscii(Double.toString(v));
+            return;
+        }
+        
+        long scaled = Math.round(Math.abs(v) * SCALE);
+        
+        if (v < 0 && scaled != 0) {
+            
+            buffer.put((byte)'-');
+        }
+        
+        putLong(scaled / SCALE);
+        buffer.put((byte)'.');
+        
+        long fraction = scaled % SCALE;
+        
+        for (long d = SCALE / 10; d > 0; d /= 10) {
+            
+            buffer.put((byte)('0' + fraction / d % 10));
+        }
+    }
+    
+    /**
+     * Encodes a {@code long} in decimal.
+     *
+     * @param v Value to encode
+     * @throws IOException if the buffer could not be written
+     */
+    
+    private void putLong(long v) throws IOException {
+        
+        if (v < 0) {
+            
+            if (v == Long.MIN_VALUE) {
+                
+                putAscii(Long.toString(v));
+                return;
+            }
+            
+            buffer.put((byte)'-');
+            v = -v;
+        }
+        
+        int start = buffer.position();
+        
+        // Writing the digits backwards before reversing them in place
+        do {
+            
+            buffer.put((byte)('0' + v % 10));
+            v /= 10;
+        } while (v > 0);
+        
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+    }
+    
+    /**
+     * Encodes an ASCII string, writing the buffer out as needed.
+     *
+     * @param s String to encode
+     * @throws IOException if the buffer could not be written
+     */
+    
+    private void putAscii(String s) throws IOException {
+        
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        int offset = 0;
+        
+        while (offset < bytes.length) {
+            
+            if (!buffer.hasRemaining()) {
+                
+                drain();
+            }
+            
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+    
+    /**
+     * Ensures that the given number of bytes fit in the buffer, writing it
+     * out if they do not.
+     *
+     * @param bytes Number of bytes about to be encoded
+     * @throws IOException if the buffer could not be written
+     */
+    
+    private void reserve(int bytes) throws IOException {
+        
+        if (buffer.remaining() < bytes) {
+            
+            drain();
+        }
+    }
+    
+    /**
+     * Writes the content of the buffer to the file and clears it.
+     *
+     * @throws IOException if the buffer could not be written
+     */
+    
+    private void drain() throws IOException {
+        
+        buffer.flip();
+        
+        while (buffer.hasRemaining()) {
+            
+            channel.write(buffer);
+        }
+        
+        buffer.clear();
+    }
+    
+    /**
+     * Writes out what remains in the buffer and closes the file.
+     *
+     * @throws IOException if the file could not be written or closed
+     */
+    
+    private void close() throws IOException {
+        
+        try {
+            
+            drain();
+        } finally {
+            
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package pedigree;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The class {@link SampleStream} carries value pairs sampled during a
+ * {@link Simulation} to a consumer on another thread. Samples are gathered in
+ * batches per series and handed over through a bounded queue. Publishing
+ * never blocks: a batch which does not fit in the queue is dropped and
+ * counted, the complete series remaining available from the
+ * {@link Simulation} once it is over.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class SampleStream {
+    
+    static final int DEFAULT_CAPACITY = 64;   // Default number of batches
+    static final int DEFAULT_BATCH_SIZE = 256; // Default samples per batch
+    
+    private final BlockingQueue<Batch> queue;
+    private final int batchSize;
+    private final Map<String, Batch> pending; // Batches being filled
+    private volatile long dropped; // Samples which could not be handed over
+    
+    /**
+     * The class {@link Batch} holds consecutive value pairs of a single
+     * series.
+     */
+    
+    public static class Batch {
+        
+        private final String series;
+        private final double[] x;
+        private final double[] y;
+        private int size;
+        
+        /**
+         * Initializes an empty {@link Batch} for the given series.
+         *
+         * @param series Name of the series
+         * @param capacity Maximum number of value pairs
+         */
+        
+        private Batch(String series, int capacity) {
+            
+            this.series = series;
+            x = new double[capacity];
+            y = new double[capacity];
+        }
+        
+        /**
+         * Retrieves the name of the series the value pairs belong to.
+         *
+         * @return The series name
+         */
+        
+        public String getSeries() {
+            
+            return series;
+        }
+        
+        /**
+         * Retrieves the number of value pairs in this {@link Batch}.
+         *
+         * @return The number of value pairs
+         */
+        
+        public int size() {
+            
+            return size;
+        }
+        
+        /**
+         * Retrieves the {@code x} value of the value pair at the given index.
+         *
+         * @param i Index of the value pair
+         * @return The {@code x} value
+         */
+        
+        public double getX(int i) {
+            
+            return x[i];
+        }
+        
+        /**
+         * Retrieves the {@code y} value of the value pair at the given index.
+         *
+         * @param i Index of the value pair
+         * @return The {@code y} value
+         */
+        
+        public double getY(int i) {
+            
+            return y[i];
+        }
+    }
+    
+    /**
+     * Initializes a stream holding up to the given number of batches of the
+     * given size.
+     *
+     * @param capacity Maximum number of batches awaiting the consumer
+     * @param batchSize Maximum number of value pairs per batch
+     */
+    
+    public SampleStream(int capacity, int batchSize) {
+        
+        queue = new ArrayBlockingQueue<Batch>(capacity);
+        this.batchSize = batchSize;
+        pending = new HashMap<String, Batch>();
+    }
+    
+    /**
+     * Initializes a stream with default capacity and batch size.
+     */
+    
+    public SampleStream() {
+        
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * Adds a value pair to the given series, handing the series' batch over
+     * once it is full. Must be called from the producing thread only.
+     *
+     * @param series Name of the series
+     * @param x The {@code x} value
+     * @param y The {@code y} value
+     */
+    
+    public void publish(String series, double x, double y) {
+        
+        Batch batch = pending.get(series);
+        
+        if (batch == null) {
+            
+            batch = new Batch(series, batchSize);
+            pending.put(series, batch);
+        }
+        
+        batch.x[batch.size] = x;
+        batch.y[batch.size++] = y;
+        
+        if (batch.size == batchSize) {
+            
+            handOver(batch);
+            pending.remove(series);
+        }
+    }
+    
+    /**
+     * Hands every partially filled batch over to the consumer. Must be
+     * called from the producing thread only.
+     */
+    
+    public void flush() {
+        
+        for (Batch batch : pending.values()) {
+            
+            handOver(batch);
+        }
+        
+        pending.clear();
+    }
+    
+    /**
+     * Retrieves and removes the oldest batch handed over, without waiting.
+     *
+     * @return The oldest batch or null if none is available
+     */
+    
+    public Batch poll() {
+        
+        return queue.poll();
+    }
+    
+    /**
+     * Retrieves the number of value pairs dropped because the consumer was
+     * lagging behind.
+     *
+     * @return The number of dropped value pairs
+     */
+    
+    public long getDropped() {
+        
+        return dropped;
+    }
+    
+    /**
+     * Offers a batch to the consumer without blocking.
+     *
+     * @param batch The batch to hand over
+     */
+    
+    private void handOver(Batch batch) {
+        
+        if (!queue.offer(batch)) {
+            
+            dropped += batch.size;
+        }
+    }
+}
\ No newline at end of file
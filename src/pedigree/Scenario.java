@@ -0,0 +1,227 @@
+package pedigree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The class {@link Scenario} schedules changes of the {@link AgeModel} and
+ * of the carrying capacity of a {@link Simulation} at given simulated times,
+ * such as a bottleneck of high mortality or low fertility followed by a
+ * recovery. A change of model switches the fertility and loyalty of every
+ * {@link Deme} along with the lifespans of the {@link Sim}s born from then
+ * on, and may also redraw the lifespans of the living {@link Sim}s from the
+ * new model given their current age.
+ *
+ * <p>The models are built once when added, so any sampling table they hold is
+ * not recomputed during the run. {@link Reproduction}s are drawn at the
+ * highest rate of all the models and thinned to the rate in effect, which
+ * leaves already scheduled {@link Event}s valid across changes.</p>
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class Scenario {
+    
+    public static final int SAME_CAPACITY = -1; // Capacity left unchanged
+    
+    private final List<Change> changes; // Changes by ascending time
+    
+    /**
+     * Initializes an empty schedule.
+     */
+    
+    public Scenario() {
+        
+        changes = new ArrayList<Change>();
+    }
+    
+    /**
+     * Schedules a switch to the given model at the given time. Changes at
+     * the same time are applied in the order they were added.
+     *
+     * @param time Simulated time of the change
+     * @param model The {@link AgeModel} in effect from then on
+     * @param redrawLifespans Whether the lifespans of the living {@link Sim}s
+     * are redrawn from the new model given their age, rather than kept
+     * @throws IllegalArgumentException if the time is negative or if the
+     * model is null
+     */
+    
+    public void add(double time, AgeModel model, boolean redrawLifespans) {
+        
+        if (!(time >= 0.0)) {
+            
+            throw new IllegalArgumentException("Negative time");
+        }
+        
+        if (model == null) {
+            
+            throw new IllegalArgumentException("No model");
+        }
+        
+        insert(new Change(time, model, redrawLifespans, SAME_CAPACITY));
+    }
+    
+    /**
+     * Schedules a switch to the given carrying capacity at the given time.
+     * Changes at the same time are applied in the order they were added.
+     *
+     * @param time Simulated time of the change
+     * @param capacity Carrying capacity of the whole population from then
+     * on, 0 to stop regulating it
+     * @throws IllegalArgumentException if the time or the capacity is
+     * negative
+     */
+    
+    public void addCapacity(double time, int capacity) {
+        
+        if (!(time >= 0.0)) {
+            
+            throw new IllegalArgumentException("Negative time");
+        }
+        
+        if (capacity < 0) {
+            
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        
+        insert(new Change(time, null, false, capacity));
+    }
+    
+    /**
+     * Retrieves the number of scheduled changes.
+     *
+     * @return The number of changes
+     */
+    
+    public int size() {
+        
+        return changes.size();
+    }
+    
+    /**
+     * Retrieves the time of the change at the given index, the changes being
+     * sorted by ascending time.
+     *
+     * @param i Index of the change
+     * @return The simulated time of the change
+     */
+    
+    public double getTime(int i) {
+        
+        return changes.get(i).time;
+    }
+    
+    /**
+     * Retrieves the model switched to by the change at the given index.
+     *
+     * @param i Index of the change
+     * @return The {@link AgeModel} in effect after the change or null if the
+     * change leaves it unchanged
+     */
+    
+    public AgeModel getModel(int i) {
+        
+        return changes.get(i).model;
+    }
+    
+    /**
+     * Retrieves the carrying capacity switched to by the change at the given
+     * index.
+     *
+     * @param i Index of the change
+     * @return The capacity in effect after the change, 0 if unregulated, or
+     * {@link #SAME_CAPACITY} if the change leaves it unchanged
+     */
+    
+    public int getCapacity(int i) {
+        
+        return changes.get(i).capacity;
+    }
+    
+    /**
+     * Indicates whether some change sets a positive carrying capacity.
+     *
+     * @return <ul><li>{@code true} if the population is regulated at some
+     * point</li><li>{@code false} otherwise</li></ul>
+     */
+    
+    public boolean isRegulating() {
+        
+        for (Change c : changes) {
+            
+            if (c.capacity > 0) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Indicates whether the change at the given index redraws the lifespans
+     * of the living {@link Sim}s.
+     *
+     * @param i Index of the change
+     * @return <ul><li>{@code true} if the lifespans are redrawn</li><li>
+     * {@code false} if only the {@link Sim}s born later are affected</li>
+     * </ul>
+     */
+    
+    public boolean isRedrawingLifespans(int i) {
+        
+        return changes.get(i).redrawLifespans;
+    }
+    
+    /**
+     * Inserts a change after those at the same time or earlier.
+     *
+     * @param change The change to insert
+     */
+    
+    private void insert(Change change) {
+        
+        int i = changes.size();
+        
+        // Keeping the changes sorted, equal times in order of addition
+        while (i > 0 && changes.get(i - 1).time > change.time) {
+            
+            i--;
+        }
+        
+        changes.add(i, change);
+    }
+    
+    /**
+     * The class {@link Change} holds a single scheduled switch of model or
+     * of carrying capacity.
+     */
+    
+    private static class Change {
+        
+        private final double time;
+        private final AgeModel model;
+        private final boolean redrawLifespans;
+        private final int capacity;
+        
+        /**
+         * Initializes a change.
+         *
+         * @param time Simulated time of the change
+         * @param model The {@link AgeModel} in effect from then on
+         * @param redrawLifespans Whether living lifespans are redrawn
+         * @param capacity Carrying capacity or {@link #SAME_CAPACITY}
+         */
+        
+        private Change(double time, AgeModel model, boolean redrawLifespans,
+            int capacity) {
+            
+            this.time = time;
+            this.model = model;
+            this.redrawLifespans = redrawLifespans;
+            this.capacity = capacity;
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package pedigree;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * The class {@link Sim} defines a virtual individual along with methods to
  * access their information.
@@ -10,7 +12,8 @@ package pedigree;
  
 public class Sim implements Comparable<Sim> {
     
-    private static int nextSimIdx = 0; // Index keeping track of totals sims
+    // Index keeping track of totals sims, shared by concurrent demes
+    private static final AtomicInteger nextSimIdx = new AtomicInteger();
     
     public static final double MIN_MATING_AGE_F = 16.0; // Female min mate age
     public static final double MIN_MATING_AGE_M = 16.0; // Male min mate age
@@ -23,13 +26,22 @@ public class Sim implements Comparable<Sim> {
     
     private Sim mother; // Current Sim's mother
     private Sim father; // Current Sim's father
-    private Sim mate;   // Current Sim's mate
+    private Partnership partnership; // Current Sim's ongoing partnership
+    private int children; // Number of children Current Sim conceived
     
     private double birthtime; // Current Sim's birth date
     private double deathtime; // Current Sim's death date
     
     private Sex sex; // Current Sim's gender
     
+    private int popIndex; // Current Sim's position in the living population
+    private int poolIndex = -1;  // Position in the MatePool, -1 if not in it
+    private int stageIndex = -1; // Position in the MatePool's stage queue
+    
+    private Event death;        // Pending Death of current Sim, or null
+    private Event reproduction; // Pending Reproduction of current Sim, or null
+    private Event migration;    // Pending Migration of current Sim, or null
+    
     /**
      * Initializes a new {@link Sim} with given mother and father {@link Sim}s
      * as well as their birth date and gender.
@@ -50,7 +62,7 @@ public class Sim implements Comparable<Sim> {
         
         this.sex = sex;
         
-        SIM_IDENT = nextSimIdx++;
+        SIM_IDENT = nextSimIdx.getAndIncrement();
     }
     
     /**
@@ -102,6 +114,18 @@ public class Sim implements Comparable<Sim> {
         return sim == null ? "" : "sim." + sim.SIM_IDENT + "/" + sim.sex;
     }
     
+    /**
+     * Retrieves the current {@link Sim}'s identity. Identities increase in
+     * order of creation, so a {@link Sim}'s parents have lower identities.
+     *
+     * @return The current {@link Sim}'s identity
+     */
+    
+    public int getIdent() {
+        
+        return SIM_IDENT;
+    }
+    
     /**
      * Retrieves the current {@link Sim}'s mother.
      *
@@ -127,23 +151,104 @@ public class Sim implements Comparable<Sim> {
     /**
      * Retrieves the current {@link Sim}'s mating partner.
      * 
-     * @return The current {@link Sim}'s mate
+     * @return The partner of the current {@link Sim}'s ongoing
+     * {@link Partnership} or null if they are single
      */
     
     public Sim getMate() {
         
-        return mate;
+        return partnership == null ? null : partnership.getPartner(this);
     }
     
     /**
-     * Sets the current's {@link Sim}'s mating partner.
+     * Retrieves the current {@link Sim}'s ongoing {@link Partnership}.
+     * 
+     * @return The ongoing {@link Partnership} or null if they are single
+     */
+    
+    public Partnership getPartnership() {
+        
+        return partnership;
+    }
+    
+    /**
+     * Sets the current {@link Sim}'s ongoing {@link Partnership}.
      *
-     * @param mate The mating partner to assign to this {@link Sim}
+     * @param partnership The {@link Partnership} the {@link Sim} enters or
+     * null once it ended
+     */
+    
+    void setPartnership(Partnership partnership) {
+        
+        this.partnership = partnership;
+    }
+    
+    /**
+     * Retrieves the number of children the current {@link Sim} conceived
+     * with all their partners.
+     * 
+     * @return The number of children
+     */
+    
+    public int getChildCount() {
+        
+        return children;
+    }
+    
+    /**
+     * Records a child conceived by the current {@link Sim}.
+     */
+    
+    void addChild() {
+        
+        children++;
+    }
+    
+    /**
+     * Retrieves the position of the current {@link Sim} in their
+     * {@link MatePool}.
+     * 
+     * @return The position or -1 if not in it
+     */
+    
+    int getPoolIndex() {
+        
+        return poolIndex;
+    }
+    
+    /**
+     * Sets the position of the current {@link Sim} in their {@link MatePool}.
+     * 
+     * @param poolIndex The position or -1 once out of it
+     */
+    
+    void setPoolIndex(int poolIndex) {
+        
+        this.poolIndex = poolIndex;
+    }
+    
+    /**
+     * Retrieves the position of the current {@link Sim} among the pending
+     * changes of age stage of their {@link MatePool}.
+     * 
+     * @return The position or -1 if none is pending
+     */
+    
+    int getStageIndex() {
+        
+        return stageIndex;
+    }
+    
+    /**
+     * Sets the position of the current {@link Sim} among the pending changes
+     * of age stage of their {@link MatePool}.
+     * 
+     * @param stageIndex The position or -1 once out
      */
     
-    public void setMate(Sim mate) {
+    void setStageIndex(int stageIndex) {
         
-        this.mate = mate;
+        this.stageIndex = stageIndex;
     }
     
     /**
@@ -179,6 +284,97 @@ public class Sim implements Comparable<Sim> {
         this.deathtime = deathtime;
     }
     
+    /**
+     * Retrieves the current {@link Sim}'s position within the index of the
+     * living population.
+     * 
+     * @return The current {@link Sim}'s population index
+     */
+    
+    public int getPopIndex() {
+        
+        return popIndex;
+    }
+    
+    /**
+     * Sets the current {@link Sim}'s position within the index of the living
+     * population.
+     *
+     * @param popIndex Position to set for the current {@link Sim}
+     */
+    
+    public void setPopIndex(int popIndex) {
+        
+        this.popIndex = popIndex;
+    }
+    
+    /**
+     * Retrieves the pending {@link Death} of the current {@link Sim}.
+     * 
+     * @return The scheduled {@link Death} or null if none is pending
+     */
+    
+    Event getPendingDeath() {
+        
+        return death;
+    }
+    
+    /**
+     * Sets the pending {@link Death} of the current {@link Sim}.
+     * 
+     * @param death The scheduled {@link Death} or null once it is out
+     */
+    
+    void setPendingDeath(Event death) {
+        
+        this.death = death;
+    }
+    
+    /**
+     * Retrieves the pending {@link Reproduction} of the current {@link Sim}.
+     * 
+     * @return The scheduled {@link Reproduction} or null if none is pending
+     */
+    
+    Event getPendingReproduction() {
+        
+        return reproduction;
+    }
+    
+    /**
+     * Sets the pending {@link Reproduction} of the current {@link Sim}.
+     * 
+     * @param reproduction The scheduled {@link Reproduction} or null once it
+     * is out
+     */
+    
+    void setPendingReproduction(Event reproduction) {
+        
+        this.reproduction = reproduction;
+    }
+    
+    /**
+     * Retrieves the pending {@link Migration} of the current {@link Sim}.
+     * 
+     * @return The scheduled {@link Migration} or null if none is pending
+     */
+    
+    Event getPendingMigration() {
+        
+        return migration;
+    }
+    
+    /**
+     * Sets the pending {@link Migration} of the current {@link Sim}.
+     * 
+     * @param migration The scheduled {@link Migration} or null once it is out
+     */
+    
+    void setPendingMigration(Event migration) {
+        
+        this.migration = migration;
+    }
+    
     /**
      * Retrieves the current {@link Sim}'s gender.
      * 
@@ -217,7 +413,8 @@ public class Sim implements Comparable<Sim> {
     
     /**
      * Checks if the current {@link Sim} has a faithful and alive mating
-     * partner at the given time.
+     * partner at the given time, that is whether their {@link Partnership}
+     * is ongoing.
      * 
      * @param time Time at which to undertake the check
      * @return <ul><li>{@code true} if the current {@link Sim} has a mating
@@ -226,9 +423,7 @@ public class Sim implements Comparable<Sim> {
      
     public boolean isInARelationship(double time) {
         
-        return mate != null
-            && mate.deathtime > time
-            && mate.mate == this;
+        return partnership != null && partnership.isActive(time);
     }
     
     /**
@@ -284,7 +479,7 @@ public class Sim implements Comparable<Sim> {
         
         return getIdentString(this) +
         " [" + birthtime + ".." + deathtime +
-        ", mate " + getIdentString(mate) +
+        ", mate " + getIdentString(getMate()) +
         "\tmom " + getIdentString(getMother()) +
         "\tdad " + getIdentString(getFather()) + "]";
     }
@@ -4,32 +4,56 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Toolkit;
 
-import java.text.DecimalFormat;
+import java.io.IOException;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JTextField;
 import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.WindowConstants;
 
 import org.jfree.chart.ChartFrame;
+import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 
 import org.jfree.chart.axis.LogAxis;
 import org.jfree.chart.axis.NumberAxis;
 
+import org.jfree.chart.event.AxisChangeEvent;
+
 import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 
+import org.jfree.chart.renderer.xy.DeviationRenderer;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 
+import org.jfree.data.Range;
+
 import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.DefaultXYDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.data.xy.YIntervalSeries;
+import org.jfree.data.xy.YIntervalSeriesCollection;
 
 /**
  * The class {@link SimPlot} manages the graphical interface elements for
  * retrieving the user arguments to begin the simulation and displaying the
- * data in the form of charts and in standard out.
+ * data in the form of charts and in a file. The chart is updated live from
+ * samples streamed by the running {@link Simulation}, and the complete series
+ * are then charted downsampled to the resolution of the visible range. Charts
+ * can also be rendered offscreen to image files, which works under
+ * {@code java.awt.headless=true}, as can the quantile bands of replicated
+ * runs.
  *
  * @version 1.9.12 2021-03-28
  * @author Philippe Gabriel
@@ -39,14 +63,25 @@ public class SimPlot {
     
     private static final int FRAME_WIDTH = 1440; //Default frame width
     private static final int FRAME_HEIGHT = 900; //Default frame height
-    
-    //Acquiring screen details and dimensions
-    private static final Toolkit screen = Toolkit.getDefaultToolkit();
-    private static final Dimension d = screen.getScreenSize();
+    private static final int REFRESH_DELAY = 250; //Milliseconds between draws
+    private static final int MAX_LIVE_POINTS = 2 * FRAME_WIDTH; //Live series
+    private static final String CSV_FILE = "pedigree-data.csv"; //Full data
+    private static final String BINARY_FILE = "pedigree-data.bin";
     
     //Input fields
     private JTextField numFounders;
     private JTextField simulationTime;
+    private JTextField numDemes;
+    private JTextField migrationRate;
+    
+    //Charted series and their complete data by name
+    private Map<String, XYSeries> series = new HashMap<String, XYSeries>();
+    private Map<String, double[][]> fullData =
+        new HashMap<String, double[][]>();
+    
+    private ChartFrame frame;
+    private NumberAxis domain;
+    private boolean decimating; //Guards against redrawing while decimating
     
     /**
      * Initiates the simulation with the given parameters and charts the data.
@@ -57,17 +92,117 @@ public class SimPlot {
     
     public SimPlot(String founders, String maxTime) {
         
-        setSimulationParams(founders, maxTime);
+        this(founders, maxTime, "1", "0.0");
+    }
+    
+    /**
+     * Initiates the simulation with the given parameters, the population
+     * being partitioned into the given number of {@link Deme}s exchanging
+     * migrants at the given rate, and charts the data.
+     *
+     * @param founders Number of founding {@link Sim}s
+     * @param maxTime Time length of simulation
+     * @param demes Number of {@link Deme}s advanced concurrently
+     * @param migration Yearly migration rate of each {@link Sim}
+     */
+    
+    public SimPlot(String founders, String maxTime, String demes,
+        String migration) {
+        
+        setSimulationParams(founders, maxTime, demes, migration);
+        
+        int founderCount = Integer.parseInt(numFounders.getText());
+        double tMax = Double.parseDouble(simulationTime.getText());
+        int demeCount = Integer.parseInt(numDemes.getText());
+        double rate = Double.parseDouble(migrationRate.getText());
+        
+        // Building the different datasets, filled while simulating
+        XYSeriesCollection SimData = new XYSeriesCollection();
+        addSeries(SimData, Simulation.POP_GROWTH);
+        addSeries(SimData, Simulation.COALESCENCE_F);
+        addSeries(SimData, Simulation.COALESCENCE_M);
         
-        // Starting simulation
-        Simulation.simulate(Integer.parseInt(numFounders.getText()),
-        Double.parseDouble(simulationTime.getText()));
+        JFreeChart chart = createChart(SimData);
+        domain = (NumberAxis)chart.getXYPlot().getDomainAxis();
+        
+        frame = new ChartFrame("Common Ancestors", chart);
+        
+        frame.setSize(FRAME_WIDTH, FRAME_HEIGHT);
+        centerComponent(frame, 0);
+        frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
+        frame.setVisible(true);
         
-        // Building the different datasets
-        DefaultXYDataset SimData = new DefaultXYDataset();
-        createDataset(SimData, "Population Size", Simulation.getPopGrowth());
-        createDataset(SimData, "Foremothers", Simulation.getCoalescenceF());
-        createDataset(SimData, "Forefathers", Simulation.getCoalescenceM());
+        SampleStream stream = new SampleStream();
+        Simulation.setSampleStream(stream);
+        
+        // Throttling redraws to one per refresh delay on the EDT
+        Timer timer = new Timer(REFRESH_DELAY, e -> drain(stream));
+        timer.start();
+        
+        // Starting simulation off the EDT
+        new SwingWorker<Void, Void>() {
+            
+            @Override
+            protected Void doInBackground() {
+                
+                Simulation.simulate(founderCount, tMax, demeCount,
+                Math.min(demeCount, Runtime.getRuntime().availableProcessors()),
+                rate);
+                
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                
+                timer.stop();
+                Simulation.setSampleStream(null);
+                
+                try {
+                    
+                    get();
+                } catch(InterruptedException | ExecutionException e) {
+                    
+                    e.printStackTrace();
+                    return;
+                }
+                
+                createDataset(Simulation.POP_GROWTH,
+                Simulation.getPopGrowth());
+                createDataset(Simulation.COALESCENCE_F,
+                Simulation.getCoalescenceF());
+                createDataset(Simulation.COALESCENCE_M,
+                Simulation.getCoalescenceM());
+                
+                try {
+                    
+                    ResultExporter.writeCsv(Paths.get(CSV_FILE));
+                    ResultExporter.writeBinary(Paths.get(BINARY_FILE));
+                    
+                    System.out.println("Data written to " + CSV_FILE
+                    + " and " + BINARY_FILE);
+                } catch(IOException e) {
+                    
+                    e.printStackTrace();
+                }
+                
+                // Replacing the live samples with the complete series
+                decimate();
+                domain.addChangeListener((AxisChangeEvent e) -> decimate());
+            }
+        }.execute();
+    }
+    
+    /**
+     * Builds the "Common Ancestors" chart of the given dataset with a standard
+     * number axis for the time and a logarithmic axis for the number of
+     * {@link Sim}s.
+     *
+     * @param SimData Dataset to chart
+     * @return The chart of the dataset
+     */
+    
+    public static JFreeChart createChart(XYDataset SimData) {
         
         XYPlot plot = new XYPlot(
             SimData,
@@ -76,19 +211,175 @@ public class SimPlot {
             new XYLineAndShapeRenderer()
         );
         
-        JFreeChart chart = new JFreeChart(
+        return new JFreeChart(
             "Common Ancestors",
             JFreeChart.DEFAULT_TITLE_FONT,
             plot,
             true
         );
+    }
+    
+    /**
+     * Renders offscreen the chart of the given series to a PNG file. Each
+     * series is downsampled to one value pair per pixel of the image width.
+     * This method may be called concurrently for different charts.
+     *
+     * @param file Path of the PNG file to write
+     * @param data {@link Map} of the series of value pairs by label
+     * @param width Width of the image in pixels
+     * @param height Height of the image in pixels
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void saveChartAsPNG(Path file,
+        Map<String, Map<Double, Integer>> data, int width, int height)
+        throws IOException {
         
-        ChartFrame frame = new ChartFrame("Common Ancestors", chart);
+        XYSeriesCollection SimData = new XYSeriesCollection();
         
-        frame.setSize(FRAME_WIDTH, FRAME_HEIGHT);
-        centerComponent(frame, 0);
-        frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
-        frame.setVisible(true);
+        for (Map.Entry<String, Map<Double, Integer>> entry : data.entrySet()) {
+            
+            double[][] values = toArrays(entry.getValue());
+            XYSeries s = new XYSeries(entry.getKey(), false, true);
+            
+            if (values[0].length > 0) {
+                
+                for (int i : Decimator.lttb(values[0], values[1], 0,
+                    values[0].length, Math.max(width, 3))) {
+                    
+                    s.add(values[0][i], values[1][i], false);
+                }
+            }
+            
+            SimData.addSeries(s);
+        }
+        
+        ChartUtils.saveChartAsPNG(file.toFile(), createChart(SimData), width,
+        height);
+    }
+    
+    /**
+     * Builds the "Common Ancestors" chart of the replicates summarized by the
+     * given aggregator. Each series is drawn as its median over a shaded band
+     * between its 5% and 95% quantiles.
+     *
+     * @param replicates Aggregated series of the replicates
+     * @return The chart of the quantile bands
+     */
+    
+    public static JFreeChart createBandChart(ReplicateAggregator replicates) {
+        
+        YIntervalSeriesCollection bands = new YIntervalSeriesCollection();
+        double[] grid = replicates.getGrid();
+        
+        for (String label : replicates.getSeries()) {
+            
+            double[] low = replicates.quantiles(label, 0.05);
+            double[] median = replicates.quantiles(label, 0.5);
+            double[] high = replicates.quantiles(label, 0.95);
+            YIntervalSeries s = new YIntervalSeries(label, false, true);
+            
+            for (int i = 0; i < grid.length; i++) {
+                
+                // Grid times no replicate reached are left blank
+                if (!Double.isNaN(median[i])) {
+                    
+                    s.add(grid[i] / 1000.0, median[i], low[i], high[i]);
+                }
+            }
+            
+            bands.addSeries(s);
+        }
+        
+        DeviationRenderer renderer = new DeviationRenderer(true, false);
+        renderer.setAlpha(0.25f);
+        
+        XYPlot plot = new XYPlot(
+            bands,
+            new NumberAxis("Time (1000 years)"),
+            new LogAxis("Number of Sims"),
+            renderer
+        );
+        
+        // Shading each band in the color of its median line
+        for (int i = 0; i < bands.getSeriesCount(); i++) {
+            
+            renderer.setSeriesFillPaint(i, renderer.lookupSeriesPaint(i));
+        }
+        
+        return new JFreeChart(
+            "Common Ancestors (" + replicates.getRuns() + " runs)",
+            JFreeChart.DEFAULT_TITLE_FONT,
+            plot,
+            true
+        );
+    }
+    
+    /**
+     * Renders offscreen the quantile bands of the given replicates to a PNG
+     * file.
+     *
+     * @param file Path of the PNG file to write
+     * @param replicates Aggregated series of the replicates
+     * @param width Width of the image in pixels
+     * @param height Height of the image in pixels
+     * @throws IOException if the file could not be written
+     */
+    
+    public static void saveBandsAsPNG(Path file, ReplicateAggregator replicates,
+        int width, int height) throws IOException {
+        
+        ChartUtils.saveChartAsPNG(file.toFile(), createBandChart(replicates),
+        width, height);
+    }
+    
+    /**
+     * Adds an empty series with the given label to the given dataset.
+     *
+     * @param set {@link XYSeriesCollection} which will hold the series
+     * @param label Associated label with the series
+     */
+    
+    private void addSeries(XYSeriesCollection set, String label) {
+        
+        // Unsorted so that samples arriving in any order are appended in O(1)
+        XYSeries s = new XYSeries(label, false, true);
+        
+        // Live samples beyond this count push out the oldest ones
+        s.setMaximumItemCount(MAX_LIVE_POINTS);
+        
+        series.put(label, s);
+        set.addSeries(s);
+    }
+    
+    /**
+     * Appends the samples streamed since the last call to their series and
+     * redraws each changed series once.
+     *
+     * @param stream The {@link SampleStream} fed by the {@link Simulation}
+     */
+    
+    private void drain(SampleStream stream) {
+        
+        Set<XYSeries> changed = new HashSet<XYSeries>();
+        SampleStream.Batch batch;
+        
+        while ((batch = stream.poll()) != null) {
+            
+            XYSeries s = series.get(batch.getSeries());
+            
+            for (int i = 0; i < batch.size(); i++) {
+                
+                s.add(batch.getX(i) / 1000.0, batch.getY(i), false);
+            }
+            
+            changed.add(s);
+        }
+        
+        for (XYSeries s : changed) {
+            
+            s.fireSeriesChanged();
+        }
     }
     
     /**
@@ -96,17 +387,24 @@ public class SimPlot {
      *
      * @param founders Number of founding {@link Sim}s
      * @param maxTime Time length of simulation
+     * @param demes Number of {@link Deme}s
+     * @param migration Yearly migration rate of each {@link Sim}
      */
     
-    private void setSimulationParams(String founders, String maxTime) {
+    private void setSimulationParams(String founders, String maxTime,
+        String demes, String migration) {
         
         numFounders = new JTextField(founders);
         simulationTime = new JTextField(maxTime);
+        numDemes = new JTextField(demes);
+        migrationRate = new JTextField(migration);
         
         Object[] message = {
             
             "Founders: ", numFounders,
-            "Time of simulation: ", simulationTime
+            "Time of simulation: ", simulationTime,
+            "Demes: ", numDemes,
+            "Migration rate: ", migrationRate
         };
         
         boolean validArguments = false;
@@ -125,14 +423,16 @@ public class SimPlot {
                 try {
                     
                     if (Integer.parseInt(numFounders.getText()) >= 0
-                    && Double.parseDouble(simulationTime.getText()) >= 0) {
+                    && Double.parseDouble(simulationTime.getText()) >= 0
+                    && Integer.parseInt(numDemes.getText()) > 0
+                    && Double.parseDouble(migrationRate.getText()) >= 0) {
                         
                         validArguments = true;
                     } else {
                         
                         JOptionPane.showMessageDialog(
                             null,
-                            "For negative input",
+                            "For negative input or no deme",
                             "Wrong argument type",
                             JOptionPane.ERROR_MESSAGE
                         );
@@ -154,21 +454,27 @@ public class SimPlot {
     }
     
     /**
-     * Adds series of value pairs to the given dataset and prints the data in
-     * standard out.
+     * Stores the complete series of value pairs to plot under the given label.
      *
-     * @param set {@link #DefaultXYDataset} which will hold the dataset of
-     * interest
      * @param label Associated label with a series
      * @param mapData {@link Map} holding the series of value pairs to plot
      */
     
-    private void createDataset(DefaultXYDataset set, String label,  
-        Map<Double, Integer> mapData) {
+    private void createDataset(String label, Map<Double, Integer> mapData) {
     
-        System.out.println(label);
+        fullData.put(label, toArrays(mapData));
+    }
     
-        DecimalFormat dFormat = new DecimalFormat("0.000000");
+    /**
+     * Copies a series of value pairs into arrays, the times being converted
+     * to thousands of years.
+     *
+     * @param mapData {@link Map} holding the series of value pairs to plot
+     * @return The {@code x} values followed by the {@code y} values
+     */
+    
+    private static double[][] toArrays(Map<Double, Integer> mapData) {
+        
         double[][] data = new double[2][mapData.size()];
         int i = 0;
     
@@ -176,14 +482,102 @@ public class SimPlot {
     
             data[0][i] = entry.getKey() / 1000.0;
             data[1][i] = entry.getValue();
-    
-            System.out.println(dFormat.format(data[0][i]) + "\t" + data[1][i]);
             i++;
         }
+        
+        return data;
+    }
+    
+    /**
+     * Replaces the content of every charted series with their complete data
+     * downsampled to about one value pair per pixel over the visible range.
+     * The first and last value pairs of each series are always kept so that
+     * restoring the automatic range shows the whole series.
+     */
+    
+    private void decimate() {
+        
+        if (decimating) {
+            
+            return;
+        }
+        
+        decimating = true;
+        
+        Range visible = domain.getRange();
+        int pixels = Math.max(frame.getChartPanel().getWidth(), 3);
+        
+        for (Map.Entry<String, double[][]> entry : fullData.entrySet()) {
+            
+            double[] x = entry.getValue()[0];
+            double[] y = entry.getValue()[1];
+            XYSeries s = series.get(entry.getKey());
+            
+            s.setNotify(false);
+            s.clear();
+            s.setMaximumItemCount(Integer.MAX_VALUE);
+            
+            if (x.length > 0) {
+                
+                // Keeping a value pair past each edge so lines cross it
+                int from = Math.max(lowerBound(x, visible.getLowerBound())
+                    - 1, 0);
+                int to = Math.min(lowerBound(x, Math.nextUp(
+                    visible.getUpperBound())) + 1, x.length);
+                
+                if (from > 0) {
+                    
+                    s.add(x[0], y[0], false);
+                }
+                
+                if (from < to) {
+                    
+                    for (int i : Decimator.lttb(x, y, from, to, pixels)) {
+                        
+                        s.add(x[i], y[i], false);
+                    }
+                }
+                
+                if (to < x.length) {
+                    
+                    s.add(x[x.length - 1], y[x.length - 1], false);
+                }
+            }
+            
+            s.setNotify(true);
+        }
+        
+        decimating = false;
+    }
     
-        System.out.println("________________________________________________");
+    /**
+     * Finds the index of the first value greater than or equal to the given
+     * value within the given sorted values.
+     *
+     * @param x Values sorted in ascending order
+     * @param v Value of interest
+     * @return Index of the first value not less than {@code v}
+     */
     
-        set.addSeries(label, data);
+    private static int lowerBound(double[] x, double v) {
+        
+        int lo = 0;
+        int hi = x.length;
+        
+        while (lo < hi) {
+            
+            int mid = (lo + hi) >>> 1;
+            
+            if (x[mid] < v) {
+                
+                lo = mid + 1;
+            } else {
+                
+                hi = mid;
+            }
+        }
+        
+        return lo;
     }
     
     /**
@@ -196,6 +590,9 @@ public class SimPlot {
 
     private void centerComponent(Component c, int offset) {
 
+        //Acquiring screen dimensions, only available with a display
+        Dimension d = Toolkit.getDefaultToolkit().getScreenSize();
+
         c.setLocation((d.width - c.getWidth()) / 2 - offset,
         (d.height - c.getHeight()) / 2 - offset);
     }
@@ -7,6 +7,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * The class {@link Simulation} runs a simulation of {@link Event}s and tracks
  * the population of {@link Sim}s following the events.
@@ -17,27 +23,820 @@ import java.util.Random;
 
 public class Simulation {
     
-    private static AgeModel model;
-    private static MinPQ<Event> eventQ;
-    private static MinPQ<Sim> populationQ;
-    private static List<Sim> populationList;
-    private static double poissonProc;
-    private static Random rnd;
+    // Default width of the synchronization windows between demes: a Sim born
+    // within a window cannot mate before the window is over
+    static final double DEFAULT_WINDOW = Sim.MIN_MATING_AGE_F;
+    
+    // Default number of living Sims whose biparental ancestry is traced
+    static final int DEFAULT_ANCESTRY_WIDTH = 4096;
+    
+    // Names of the series sampled by the simulation
+    public static final String POP_GROWTH = "Population Size";
+    public static final String COALESCENCE_F = "Foremothers";
+    public static final String COALESCENCE_M = "Forefathers";
+    
+    private static AgeModel model;
+    private static AgeModel nextModel; // Model of the next runs, or null
+    private static List<Deme> demes;
+    private static double poissonProc;
+    private static double peakRate; // Rate at which Reproductions are drawn
+    private static Scenario scenario; // Changes of model, null if none
+    private static int changes;     // Changes applied during the last run
+    private static int carryingCapacity; // Capacity of the next runs, or 0
+    private static int capacity;    // Capacity in effect, 0 if unregulated
+    private static Random rnd;
+    private static long seed;     // Seed of the last simulation
+    private static Long nextSeed; // Seed of the next one, null if random
+    
+    // Parameters of the last simulation
+    private static int founders;
+    private static double maxTime;
+    private static double migration;
+    
+    // Maps for plotting
+    private static Map<Double, Integer> popGrowth;
+    private static Map<Double, Integer> coalescenceF;
+    private static Map<Double, Integer> coalescenceM;
+    
+    // Lineages traced at the end of the last simulation
+    private static Coalescence lineageF;
+    private static Coalescence lineageM;
+    private static double endTime;
+    
+    private static SampleStream stream; // Live samples, null if not streamed
+    private static int coalescenceSample; // Sims traced per sex, 0 for all
+    private static double coalescenceFraction; // Or fraction traced per sex
+    private static int ancestryWidth = DEFAULT_ANCESTRY_WIDTH;
+    private static Ancestry ancestry; // Biparental ancestry of the last run
+    private static PedigreeIndex pedigree; // Built on demand, null until then
+    private static int mateExclusion; // Closest degree of mates, 0 for any
+    private static int kinshipDepth = Kinship.DEFAULT_DEPTH; // 0 to disable
+    private static int exclusion; // Closest degree of mates of the last run
+    private static boolean partnershipHistory; // Whether Partnerships are kept
+    
+    // Mate choice of the next runs and of the last one
+    private static MateChoice mateChoice = new UniformMateChoice();
+    private static MateChoice choice;
+    
+    // Capacity policy of the Event queues of the next runs and of the last one
+    private static CapacityPolicy queuePolicy = CapacityPolicy.DEFAULT;
+    private static CapacityPolicy policy;
+    
+    /**
+     * Retrieves the {@link AgeModel} of the last simulation.
+     *
+     * @return The associated {@link AgeModel}
+     */
+    
+    public static AgeModel getModel() {
+        
+        return model;
+    }
+    
+    /**
+     * Sets the {@link AgeModel} ruling the lifespans, fertility and loyalty
+     * of the {@link Sim}s of the next simulations.
+     *
+     * @param ageModel The model to use or null for the default
+     * {@link GompertzMakehamModel}
+     */
+    
+    public static void setModel(AgeModel ageModel) {
+        
+        nextModel = ageModel;
+    }
+    
+    /**
+     * Sets the schedule of changes of model applied during the next
+     * simulations, on top of the model set for their start.
+     *
+     * @param schedule The {@link Scenario} to follow or null to keep the
+     * same model throughout
+     */
+    
+    public static void setScenario(Scenario schedule) {
+        
+        scenario = schedule;
+    }
+    
+    /**
+     * Sets the carrying capacity regulating the fertility of the next
+     * simulations, shared evenly between their {@link Deme}s. Below capacity
+     * fertility is raised, up to twice its rate in an empty {@link Deme}, and
+     * above it fertility is lowered, so that a population at replacement
+     * fertility settles around its capacity.
+     *
+     * @param populationCapacity The carrying capacity of the population, 0
+     * to leave it unregulated
+     * @throws IllegalArgumentException if the capacity is negative
+     */
+    
+    public static void setCarryingCapacity(int populationCapacity) {
+        
+        if (populationCapacity < 0) {
+            
+            throw new IllegalArgumentException("Negative capacity");
+        }
+        
+        carryingCapacity = populationCapacity;
+    }
+    
+    /**
+     * Retrieves the carrying capacity in effect at the end of the last
+     * simulation.
+     *
+     * @return The carrying capacity, 0 if the population was unregulated
+     */
+    
+    public static int getCarryingCapacity() {
+        
+        return capacity;
+    }
+    
+    /**
+     * Retrieves the number of changes of model applied during the last
+     * simulation.
+     *
+     * @return The number of changes applied
+     */
+    
+    public static int getScenarioChanges() {
+        
+        return changes;
+    }
+    
+    /**
+     * Retrieves the seed of the random number generator of the last
+     * simulation.
+     *
+     * @return The associated seed
+     */
+    
+    public static long getSeed() {
+        
+        return seed;
+    }
+    
+    /**
+     * Sets the seed of the random number generator of the next simulation,
+     * which otherwise uses a random seed.
+     *
+     * @param seed The seed to use
+     */
+    
+    public static void setSeed(long seed) {
+        
+        nextSeed = seed;
+    }
+    
+    /**
+     * Retrieves the number of founder {@link Sim}s of the last simulation.
+     *
+     * @return The number of founders
+     */
+    
+    public static int getFounders() {
+        
+        return founders;
+    }
+    
+    /**
+     * Retrieves the maximum time length of the last simulation.
+     *
+     * @return The maximum time
+     */
+    
+    public static double getMaxTime() {
+        
+        return maxTime;
+    }
+    
+    /**
+     * Retrieves the maternal lineages traced at the end of the last
+     * simulation.
+     *
+     * @return The {@link Coalescence} of the sampled females
+     */
+    
+    public static Coalescence getLineageF() {
+        
+        return lineageF;
+    }
+    
+    /**
+     * Retrieves the paternal lineages traced at the end of the last
+     * simulation.
+     *
+     * @return The {@link Coalescence} of the sampled males
+     */
+    
+    public static Coalescence getLineageM() {
+        
+        return lineageM;
+    }
+    
+    /**
+     * Retrieves the biparental ancestry traced at the end of the last
+     * simulation.
+     *
+     * @return The {@link Ancestry} of the final population or of a sample of
+     * it, null if ancestry tracing is disabled
+     */
+    
+    public static Ancestry getAncestry() {
+        
+        return ancestry;
+    }
+    
+    /**
+     * Retrieves the index of the pedigree of the final population of the last
+     * simulation, building it on first use.
+     *
+     * @return The {@link PedigreeIndex} of the living {@link Sim}s and all
+     * their ancestors
+     * @throws IllegalStateException if no simulation was run
+     */
+    
+    public static PedigreeIndex getPedigree() {
+        
+        if (demes == null) {
+            
+            throw new IllegalStateException("No simulation was run");
+        }
+        
+        if (pedigree == null) {
+            
+            pedigree = PedigreeIndex.build(reservoir(null, populationSize()));
+        }
+        
+        return pedigree;
+    }
+    
+    /**
+     * Sets the largest number of living {@link Sim}s whose biparental
+     * ancestry is traced at the end of the next simulations. Larger
+     * populations are sampled uniformly at random down to this number, each
+     * ancestor holding a set of as many bits.
+     *
+     * @param width Number of living {@link Sim}s traced, 0 to disable
+     * ancestry tracing
+     * @throws IllegalArgumentException if the number is negative
+     */
+    
+    public static void setAncestryWidth(int width) {
+        
+        if (width < 0) {
+            
+            throw new IllegalArgumentException("Negative ancestry width");
+        }
+        
+        ancestryWidth = width;
+    }
+    
+    /**
+     * Sets the degree of relationship within which candidate mates are
+     * rejected during the next simulations: 1 rejects parents, children and
+     * full siblings, 2 also rejects grandparents, half siblings, uncles and
+     * aunts, 3 also rejects first cousins and so on.
+     *
+     * @param degree Closest degree of relationship allowed between mates, 0
+     * to accept relatives
+     * @throws IllegalArgumentException if the degree is negative
+     */
+    
+    public static void setMateExclusion(int degree) {
+        
+        if (degree < 0) {
+            
+            throw new IllegalArgumentException("Negative degree");
+        }
+        
+        mateExclusion = degree;
+    }
+    
+    /**
+     * Retrieves the degree of relationship within which candidate mates were
+     * rejected during the last simulation.
+     *
+     * @return The degree of relationship, 0 if relatives were accepted
+     */
+    
+    public static int getMateExclusion() {
+        
+        return exclusion;
+    }
+    
+    /**
+     * Sets the number of meioses followed up from the parents to compute the
+     * inbreeding coefficient of each {@link Birth} of the next simulations.
+     * Common ancestors further up are ignored.
+     *
+     * @param depth Number of meioses followed, 0 not to compute inbreeding
+     * @throws IllegalArgumentException if the depth is not within [0, 126]
+     */
+    
+    public static void setKinshipDepth(int depth) {
+        
+        if (depth < 0 || depth > Byte.MAX_VALUE - 1) {
+            
+            throw new IllegalArgumentException("Depth out of [0, 126]");
+        }
+        
+        kinshipDepth = depth;
+    }
+    
+    /**
+     * Retrieves the mean inbreeding coefficient of the {@link Sim}s conceived
+     * during the last simulation.
+     *
+     * @return The mean inbreeding coefficient, NaN if none was conceived or
+     * if inbreeding was not computed
+     */
+    
+    public static double getMeanBirthInbreeding() {
+        
+        double sum = 0.0;
+        long births = 0;
+        
+        for (Deme deme : demes) {
+            
+            sum += deme.getInbreedingSum();
+            births += deme.getBirths();
+        }
+        
+        return births == 0 ? Double.NaN : sum / births;
+    }
+    
+    /**
+     * Retrieves the number of candidate mates rejected for being relatives
+     * during the last simulation.
+     *
+     * @return The number of rejected candidates
+     */
+    
+    public static long getRelativesRejected() {
+        
+        long rejected = 0;
+        
+        for (Deme deme : demes) {
+            
+            rejected += deme.getRelativesRejected();
+        }
+        
+        return rejected;
+    }
+    
+    /**
+     * Sets how mothers pick their mate among the males of mating age of
+     * their {@link Deme} during the next simulations.
+     *
+     * @param matingChoice The {@link MateChoice} to follow
+     * @throws IllegalArgumentException if the choice is null
+     */
+    
+    public static void setMateChoice(MateChoice matingChoice) {
+        
+        if (matingChoice == null) {
+            
+            throw new IllegalArgumentException("No mate choice");
+        }
+        
+        mateChoice = matingChoice;
+    }
+    
+    /**
+     * Retrieves how mothers picked their mate during the last simulation.
+     *
+     * @return The {@link MateChoice} followed
+     */
+    
+    public static MateChoice getMateChoice() {
+        
+        return choice;
+    }
+    
+    /**
+     * Retrieves the number of mate searches of the last simulation which ran
+     * out of draws, every candidate drawn being too closely related to the
+     * mother.
+     *
+     * @return The number of cut searches
+     */
+    
+    public static long getMateSearchesCut() {
+        
+        long cut = 0;
+        
+        for (Deme deme : demes) {
+            
+            cut += deme.getMateSearchesCut();
+        }
+        
+        return cut;
+    }
+    
+    /**
+     * Sets whether every {@link Partnership} formed during the next
+     * simulations is kept for analysis, at the cost of memory growing with
+     * the number of couples ever formed.
+     *
+     * @param keep Whether the {@link Partnership}s are kept
+     */
+    
+    public static void setPartnershipHistory(boolean keep) {
+        
+        partnershipHistory = keep;
+    }
+    
+    /**
+     * Retrieves every {@link Partnership} formed during the last simulation
+     * in order of formation.
+     *
+     * @return The {@link Partnership}s or null if they were not kept
+     */
+    
+    public static List<Partnership> getPartnerships() {
+        
+        List<Partnership> all = null;
+        
+        for (Deme deme : demes) {
+            
+            if (deme.getPartnerships() != null) {
+                
+                if (all == null) {
+                    
+                    all = new ArrayList<Partnership>();
+                }
+                
+                all.addAll(deme.getPartnerships());
+            }
+        }
+        
+        if (all != null) {
+            
+            all.sort(Comparator.comparingDouble(Partnership::getStart));
+        }
+        
+        return all;
+    }
+    
+    /**
+     * Retrieves the number of {@link Partnership}s formed during the last
+     * simulation.
+     *
+     * @return The number of {@link Partnership}s
+     */
+    
+    public static long getPartnershipCount() {
+        
+        long count = 0;
+        
+        for (Deme deme : demes) {
+            
+            count += deme.getPartnershipCount();
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Retrieves the number of {@link Partnership}s ended during the last
+     * simulation by either partner pairing with someone else.
+     *
+     * @return The number of broken {@link Partnership}s
+     */
+    
+    public static long getBreakups() {
+        
+        long breakups = 0;
+        
+        for (Deme deme : demes) {
+            
+            breakups += deme.getBreakups();
+        }
+        
+        return breakups;
+    }
+    
+    /**
+     * Retrieves the share of the births of the last simulation whose mother
+     * or father already had a child with another partner, which the
+     * infidelity allowed by the loyalty factor raises.
+     *
+     * @return The share of births with an older half-sibling, NaN if none
+     * was conceived
+     */
+    
+    public static double getHalfSiblingRate() {
+        
+        long halfSibs = 0;
+        long births = 0;
+        
+        for (Deme deme : demes) {
+            
+            halfSibs += deme.getHalfSiblingBirths();
+            births += deme.getBirths();
+        }
+        
+        return births == 0 ? Double.NaN : (double)halfSibs / births;
+    }
+    
+    /**
+     * Retrieves the number of {@link Event}s applied during the last
+     * simulation.
+     *
+     * @return The number of processed {@link Event}s
+     */
+    
+    public static long getEventsProcessed() {
+        
+        long processed = 0;
+        
+        for (Deme deme : demes) {
+            
+            processed += deme.getEventsProcessed();
+        }
+        
+        return processed;
+    }
+    
+    /**
+     * Retrieves the number of {@link Event}s cancelled before they were due
+     * during the last simulation.
+     *
+     * @return The number of cancelled {@link Event}s
+     */
+    
+    public static long getEventsCancelled() {
+        
+        long cancelled = 0;
+        
+        for (Deme deme : demes) {
+            
+            cancelled += deme.getEventsCancelled();
+        }
+        
+        return cancelled;
+    }
+    
+    /**
+     * Retrieves the number of {@link Reproduction} chains ended at the end
+     * of the mating age or at the death of the mother during the last
+     * simulation.
+     *
+     * @return The number of cut chains
+     */
+    
+    public static long getReproductionChainsCut() {
+        
+        long cut = 0;
+        
+        for (Deme deme : demes) {
+            
+            cut += deme.getReproductionChainsCut();
+        }
+        
+        return cut;
+    }
+    
+    /**
+     * Retrieves the sum over the {@link Deme}s of the largest number of
+     * {@link Event}s pending at once in each during the last simulation.
+     *
+     * @return The sum of the peak queue sizes
+     */
+    
+    public static long getPeakQueueSize() {
+        
+        long peak = 0;
+        
+        for (Deme deme : demes) {
+            
+            peak += deme.getPeakQueueSize();
+        }
+        
+        return peak;
+    }
+    
+    /**
+     * Sets the policy ruling the resizes of the {@link Event} queues of the
+     * {@link Deme}s during the next simulations.
+     *
+     * @param capacityPolicy The {@link CapacityPolicy} to follow
+     * @throws IllegalArgumentException if the policy is null
+     */
+    
+    public static void setQueuePolicy(CapacityPolicy capacityPolicy) {
+        
+        if (capacityPolicy == null) {
+            
+            throw new IllegalArgumentException("No capacity policy");
+        }
+        
+        queuePolicy = capacityPolicy;
+    }
+    
+    /**
+     * Retrieves the policy which ruled the resizes of the {@link Event}
+     * queues during the last simulation.
+     *
+     * @return The {@link CapacityPolicy} followed
+     */
     
-    // Maps for plotting
-    private static Map<Double, Integer> popGrowth;
-    private static Map<Double, Integer> coalescenceF;
-    private static Map<Double, Integer> coalescenceM;
+    public static CapacityPolicy getQueuePolicy() {
+        
+        return policy;
+    }
+    
+    /**
+     * Retrieves the number of times the {@link Event} queues of the
+     * {@link Deme}s were resized during the last simulation.
+     *
+     * @return The number of resizes
+     */
+    
+    public static long getQueueResizes() {
+        
+        long resizes = 0;
+        
+        for (Deme deme : demes) {
+            
+            resizes += deme.getQueueResizes();
+        }
+        
+        return resizes;
+    }
+    
+    /**
+     * Retrieves the number of bytes copied by the resizes of the
+     * {@link Event} queues of the {@link Deme}s during the last simulation.
+     *
+     * @return The number of bytes copied
+     */
+    
+    public static long getQueueBytesCopied() {
+        
+        long copied = 0;
+        
+        for (Deme deme : demes) {
+            
+            copied += deme.getQueueBytesCopied();
+        }
+        
+        return copied;
+    }
+    
+    /**
+     * Computes the mean inbreeding coefficient of the final population of
+     * the last simulation, following the given number of meioses up from
+     * the parents of each {@link Sim}.
+     *
+     * @param depth Number of meioses followed
+     * @return The mean inbreeding coefficient, NaN if the population is
+     * extinct
+     * @throws IllegalArgumentException if the depth is not within [0, 126]
+     * @throws IllegalStateException if no simulation was run
+     */
+    
+    public static double getPopulationInbreeding(int depth) {
+        
+        if (demes == null) {
+            
+            throw new IllegalStateException("No simulation was run");
+        }
+        
+        Kinship kinship = new Kinship(depth);
+        double sum = 0.0;
+        int n = 0;
+        
+        for (Deme deme : demes) {
+            
+            for (Sim sim : deme.getPopulation()) {
+                
+                sum += kinship.inbreeding(sim);
+                n++;
+            }
+        }
+        
+        return n == 0 ? Double.NaN : sum / n;
+    }
+    
+    /**
+     * Sets the number of {@link Sim}s of each sex sampled at random from the
+     * final population to trace the lineages of the next simulations. The
+     * whole population is traced if the number is 0 or exceeds its size.
+     * This replaces any fraction previously set.
+     *
+     * @param sampleSize Number of {@link Sim}s sampled per sex
+     * @throws IllegalArgumentException if the number is negative
+     */
+    
+    public static void setCoalescenceSample(int sampleSize) {
+        
+        if (sampleSize < 0) {
+            
+            throw new IllegalArgumentException("Negative sample size");
+        }
+        
+        coalescenceSample = sampleSize;
+        coalescenceFraction = 0.0;
+    }
+    
+    /**
+     * Sets the fraction of the {@link Sim}s of each sex sampled at random
+     * from the final population to trace the lineages of the next
+     * simulations. This replaces any number previously set.
+     *
+     * @param fraction Fraction of {@link Sim}s sampled per sex, rounded up
+     * @throws IllegalArgumentException if the fraction is not within (0, 1]
+     */
+    
+    public static void setCoalescenceFraction(double fraction) {
+        
+        if (!(fraction > 0.0 && fraction <= 1.0)) {
+            
+            throw new IllegalArgumentException("Fraction out of (0, 1]");
+        }
+        
+        coalescenceFraction = fraction;
+        coalescenceSample = 0;
+    }
+    
+    /**
+     * Traces the lineages of a new random sample of the final population of
+     * the last simulation.
+     *
+     * @param sex Sex of the {@link Sim}s sampled and of the parents followed
+     * @param sampleSize Number of {@link Sim}s sampled, 0 for all of them
+     * @return The {@link Coalescence} of the sample
+     * @throws IllegalArgumentException if the number is negative
+     * @throws IllegalStateException if no simulation was run
+     */
+    
+    public static Coalescence coalescenceSample(Sim.Sex sex,
+        int sampleSize) {
+        
+        if (sampleSize < 0) {
+            
+            throw new IllegalArgumentException("Negative sample size");
+        }
+        
+        if (demes == null) {
+            
+            throw new IllegalStateException("No simulation was run");
+        }
+        
+        return traceSample(sex, sampleSize, 0.0);
+    }
+    
+    /**
+     * Traces the lineages of a new random sample, of the given fraction of
+     * the final population of the last simulation.
+     *
+     * @param sex Sex of the {@link Sim}s sampled and of the parents followed
+     * @param fraction Fraction of {@link Sim}s sampled, rounded up
+     * @return The {@link Coalescence} of the sample
+     * @throws IllegalArgumentException if the fraction is not within (0, 1]
+     * @throws IllegalStateException if no simulation was run
+     */
     
-    // Anonymous inner type for comparing Sims using their birth dates
-    private static Comparator<Sim> comparator = new Comparator<Sim>() {
+    public static Coalescence coalescenceFraction(Sim.Sex sex,
+        double fraction) {
+        
+        if (!(fraction > 0.0 && fraction <= 1.0)) {
+            
+            throw new IllegalArgumentException("Fraction out of (0, 1]");
+        }
         
-        public int compare(Sim s1, Sim s2) {
+        if (demes == null) {
             
-            // The "youngest" people are those with the higher birth date
-            return -Double.compare(s1.getBirthTime(), s2.getBirthTime());
+            throw new IllegalStateException("No simulation was run");
         }
-    };
+        
+        return traceSample(sex, 0, fraction);
+    }
+    
+    /**
+     * Retrieves the number of {@link Deme}s of the last simulation.
+     *
+     * @return The number of {@link Deme}s
+     */
+    
+    public static int getDemeCount() {
+        
+        return demes.size();
+    }
+    
+    /**
+     * Retrieves the yearly migration rate of the last simulation.
+     *
+     * @return The migration rate
+     */
+    
+    public static double getMigrationRate() {
+        
+        return migration;
+    }
     
     /**
      * Retrieves the population growth associated with this simulation.
@@ -72,6 +871,19 @@ public class Simulation {
         return coalescenceM;
     }
     
+    /**
+     * Sets the stream through which the value pairs are published as they are
+     * sampled during the following simulations.
+     *
+     * @param sampleStream The {@link SampleStream} to publish to or null to
+     * stop publishing
+     */
+    
+    public static void setSampleStream(SampleStream sampleStream) {
+        
+        stream = sampleStream;
+    }
+    
     /**
      * Begins the simulation of {@link Event}s stemming from the {@link Birth}
      * of a given amount of founder {@link Sim}s. The simulation ends after the
@@ -84,298 +896,458 @@ public class Simulation {
     
     public static void simulate(int n, double tMax) {
         
+        simulate(n, tMax, 1, 1, 0.0);
+    }
+    
+    /**
+     * Begins the simulation of {@link Event}s stemming from the {@link Birth}
+     * of a given amount of founder {@link Sim}s spread evenly across the given
+     * number of {@link Deme}s. Each {@link Deme} owns its {@link Event} queue
+     * and mate pool, and the {@link Deme}s are advanced concurrently on the
+     * given number of threads, one time window at a time. Migrants are moved
+     * to a uniformly chosen other {@link Deme} whenever a window closes.
+     * 
+     * @param n Number of founding {@link Sim}s
+     * @param tMax Maximum time length of simulation
+     * @param demeCount Number of {@link Deme}s partitioning the population
+     * @param threads Number of threads advancing the {@link Deme}s
+     * @param migrationRate Yearly rate at which each {@link Sim} migrates
+     * @throws IllegalArgumentException if there is not at least one
+     * {@link Deme} and one thread or if the migration rate is negative
+     */
+    
+    public static void simulate(int n, double tMax, int demeCount,
+        int threads, double migrationRate) {
+        
+        if (demeCount < 1 || threads < 1) {
+            
+            throw new IllegalArgumentException("Needs a deme and a thread");
+        }
+        
+        if (migrationRate < 0.0) {
+            
+            throw new IllegalArgumentException("Negative migration rate");
+        }
+        
         int interval = 100; // Time intervals at which population size sampled
         int period = 0;     // Time period for sampling population size
-
-        model = new AgeModel();
-        eventQ = new MinPQ<Event>();
-        populationQ = new MinPQ<Sim>();
-        populationList = new ArrayList<Sim>();
+        
+        model = nextModel != null ? nextModel : new GompertzMakehamModel();
         poissonProc = model
         .getPoissonPointProcess(Sim.MIN_MATING_AGE_F, Sim.MAX_MATING_AGE_F);
-        rnd = new Random();
+        
+        // Rates of the scheduled models, computed once per change
+        Scenario schedule = scenario;
+        double[] rates = new double[schedule == null ? 0 : schedule.size()];
+        peakRate = poissonProc;
+        changes = 0;
+        capacity = carryingCapacity;
+        
+        for (int i = 0; i < rates.length; i++) {
+            
+            AgeModel next = schedule.getModel(i);
+            
+            rates[i] = next == null ? Double.NaN : next
+            .getPoissonPointProcess(Sim.MIN_MATING_AGE_F, Sim.MAX_MATING_AGE_F);
+            peakRate = next == null ? peakRate : Math.max(peakRate, rates[i]);
+        }
+        
+        // Leaving room for the regulation to double fertility
+        if (capacity > 0 || schedule != null && schedule.isRegulating()) {
+            
+            peakRate *= 2.0;
+        }
+        
+        seed = nextSeed != null ? nextSeed : new Random().nextLong();
+        nextSeed = null;
+        rnd = new Random(seed);
+        founders = n;
+        maxTime = tMax;
+        migration = demeCount > 1 ? migrationRate : 0.0;
+        exclusion = mateExclusion;
+        choice = mateChoice;
+        policy = queuePolicy;
         
         // Initiliazing TreeMaps to preserve natural ordering by keys
         popGrowth = new TreeMap<Double, Integer>();
         coalescenceF = new TreeMap<Double, Integer>();
         coalescenceM = new TreeMap<Double, Integer>();
         
-        generateFounders(n);
+        // Migrating is meaningless without another Deme to go to
+        generateDemes(n, demeCount, migration);
+        shareCapacity();
         
-        // The simulation stops if all Events are finished or time is up
-        while (!eventQ.isEmpty()) {
-            
-            Event e = eventQ.delMin();
+        ExecutorService pool = threads > 1 && demeCount > 1 ?
+            Executors.newFixedThreadPool(Math.min(threads, demeCount)) : null;
+        double time = 0.0;
+        
+        try {
             
-            if (e.getTime() > tMax) {
+            // The simulation stops if all Events are finished or time is up
+            while (time < tMax && !isDone()) {
                 
-                break;
-            }
-            
-            // If a death time has not been set or the Sim is still alive
-            if (e.getSubject().isAlive(e.getTime())) {
+                time = Math.min(time + DEFAULT_WINDOW, tMax);
                 
-                if (e instanceof Birth) {
+                // Changes falling within the window split it
+                while (changes < rates.length
+                    && schedule.getTime(changes) <= time) {
                     
-                    birthSim(e);
-                } else if (e instanceof Reproduction) {
-                    
-                    reproductionSim(e);
+                    advanceDemes(schedule.getTime(changes), pool);
+                    applyChange(schedule, changes, rates[changes]);
+                    changes++;
                 }
-            } else {
                 
-                if (e instanceof Death) {
+                advanceDemes(time, pool);
+                migrate(time);
+                
+                if (time >= period) {
                     
-                    deathSim();
+                    record(POP_GROWTH, popGrowth, time, populationSize());
+                    period += interval;
+                    
+                    if (stream != null) {
+                        
+                        stream.flush();
+                    }
                 }
             }
+        } finally {
             
-            if ((e.getTime() / period) > 1) {
+            if (pool != null) {
                 
-                popGrowth.put(e.getTime(), populationQ.size());
-                period += interval;
+                pool.shutdown();
             }
         }
         
-        MinPQ<Sim> foremothersQ = new MinPQ<Sim>(comparator);
-        MinPQ<Sim> forefathersQ = new MinPQ<Sim>(comparator);
+        // A population which died out ends on a size of 0
+        if (populationSize() == 0 && !popGrowth.containsKey(time)) {
+            
+            record(POP_GROWTH, popGrowth, time, 0);
+        }
+        
+        endTime = time;
+        pedigree = null;
+        lineageF = traceSample(Sim.Sex.F, coalescenceSample,
+        coalescenceFraction);
+        lineageM = traceSample(Sim.Sex.M, coalescenceSample,
+        coalescenceFraction);
         
-        dividePop(foremothersQ, forefathersQ);
+        ancestry = ancestryWidth > 0 ?
+            Ancestry.trace(reservoir(null, ancestryWidth), time, interval) :
+            null;
         
-        ancestralLineage(foremothersQ, "getMother", coalescenceF);
-        ancestralLineage(forefathersQ, "getFather", coalescenceM);
+        ancestralLineage(lineageF, COALESCENCE_F, coalescenceF);
+        ancestralLineage(lineageM, COALESCENCE_M, coalescenceM);
+        
+        if (stream != null) {
+            
+            stream.flush();
+        }
     }
     
     /**
-     * Initiates the simulation with the {@link Birth} of a given amount of
-     * founder {@link Sim}s.
+     * Adds a value pair to the given series and publishes it if a stream is
+     * set.
      *
-     * @param n Integer indicating number of founder {@link Sim}s
+     * @param series Name of the series
+     * @param data The {@link Map} holding the series
+     * @param x Key of the value pair
+     * @param y Value of the value pair
      */
     
-    private static void generateFounders(int n) {
+    private static void record(String series, Map<Double, Integer> data,
+        double x, int y) {
         
-        while (n-- > 0) {
+        data.put(x, y);
+        
+        if (stream != null) {
             
-            eventQ.insert(new Birth(new Sim(), 0.0));
+            stream.publish(series, x, y);
         }
     }
     
     /**
-     * Completes the appropriate procedure for the {@link Birth} of a
-     * {@link Sim}.
+     * Creates the given number of {@link Deme}s and spreads the {@link Birth}
+     * of a given amount of founder {@link Sim}s evenly across them.
      *
-     * @param e The {@link Birth} {@link Event} details
+     * @param n Integer indicating number of founder {@link Sim}s
+     * @param demeCount Number of {@link Deme}s to create
+     * @param migrationRate Yearly rate at which each {@link Sim} migrates
      */
     
-    private static void birthSim(Event e) {
+    private static void generateDemes(int n, int demeCount,
+        double migrationRate) {
         
-        Sim sim = e.getSubject();
+        demes = new ArrayList<Deme>(demeCount);
         
-        // Setting the appropriate random death time
-        sim.setDeathTime(e.getTime() + model.randomAge(rnd));
+        for (int i = 0; i < demeCount; i++) {
+            
+            Deme deme = new Deme(model, poissonProc, peakRate, migrationRate,
+            exclusion, kinshipDepth, rnd.nextLong());
+            
+            deme.setMateChoice(choice);
+            deme.setQueuePolicy(policy);
+            
+            if (partnershipHistory) {
+                
+                deme.keepPartnerships();
+            }
+            
+            deme.generateFounders(n / demeCount + (i < n % demeCount ? 1 : 0));
+            demes.add(deme);
+        }
+    }
+    
+    /**
+     * Switches every {@link Deme} to the model or the carrying capacity of a
+     * scheduled change, once every {@link Event} up to its time was applied.
+     *
+     * @param schedule The {@link Scenario} followed
+     * @param i Index of the change
+     * @param rate Poisson Point Process rate of the new model, if any
+     */
+    
+    private static void applyChange(Scenario schedule, int i, double rate) {
         
-        // Add Death Event for this Sim
-        eventQ.insert(new Death(sim, sim.getDeathTime()));
+        if (schedule.getCapacity(i) != Scenario.SAME_CAPACITY) {
+            
+            capacity = schedule.getCapacity(i);
+            shareCapacity();
+        }
         
-        // If the Sim is a woman, add a Reproduction Event
-        if (sim.getSex().equals(Sim.Sex.F)) {
+        if (schedule.getModel(i) == null) {
             
-            eventQ.insert(new Reproduction(sim, e.getTime() +
-            AgeModel.randomWaitingTime(rnd, poissonProc)));
+            return;
         }
         
-        // Adding the newly born Sim to the population
-        populationQ.insert(sim);
-        populationList.add(sim);
+        poissonProc = rate;
+        
+        for (Deme deme : demes) {
+            
+            deme.setModel(schedule.getModel(i), rate);
+            
+            if (schedule.isRedrawingLifespans(i)) {
+                
+                deme.redrawLifespans(schedule.getTime(i));
+            }
+        }
     }
     
     /**
-     * Completes the appropriate procedure for the {@link Death} of a
-     * {@link Sim}.
+     * Shares the carrying capacity in effect evenly between the
+     * {@link Deme}s, each regulating its own size.
      */
     
-    private static void deathSim() {
+    private static void shareCapacity() {
         
-        populationList.remove(populationQ.delMin());
+        for (Deme deme : demes) {
+            
+            deme.setCapacity((double)capacity / demes.size());
+        }
     }
     
     /**
-     * Completes the appropriate procedure for the {@link Reproduction}
-     * relating to a female {@link Sim}.
+     * Applies every {@link Event} up to the given time in all {@link Deme}s,
+     * concurrently if a thread pool is given.
      *
-     * @param e The {@link Reproduction} {@link Event} details
+     * @param until Time bound of the window to process
+     * @param pool Threads advancing the {@link Deme}s or null to advance them
+     * on the current thread
+     * @throws IllegalStateException if a {@link Deme} failed to advance
      */
     
-    private static void reproductionSim(Event e) {
+    private static void advanceDemes(double until, ExecutorService pool) {
         
-        // If the female Sim is of mating age
-        if (e.getSubject().isMatingAge(e.getTime())) {
+        if (pool == null) {
             
-            // Choose father for the newborn child
-            chooseFatherSim(e);
-            
-            // Birth of their child
-            if (e.getSubject().isInARelationship(e.getTime())) {
+            for (Deme deme : demes) {
                 
-                eventQ.insert(new Birth(new Sim(e.getSubject(),
-                e.getSubject().getMate(), e.getTime()), e.getTime()));
+                deme.advance(until);
             }
+            
+            return;
+        }
+        
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        
+        for (Deme deme : demes) {
+            
+            tasks.add(() -> {
+                
+                deme.advance(until);
+                return null;
+            });
         }
         
-        eventQ.insert(new Reproduction(e.getSubject(), e.getTime() +
-        AgeModel.randomWaitingTime(rnd, poissonProc)));
+        try {
+            
+            // Waiting on every Deme acts as the barrier closing the window
+            for (Future<Void> f : pool.invokeAll(tasks)) {
+                
+                f.get();
+            }
+        } catch(InterruptedException | ExecutionException e) {
+            
+            throw new IllegalStateException("Deme failed to advance", e);
+        }
     }
     
     /**
-     * Selects a male {@link Sim} with which the female {@link Sim} who is in
-     * the process of a {@link Reproduction} {@link Event} will mate with.
+     * Moves the {@link Sim}s who underwent a {@link Migration} during the last
+     * window into a uniformly chosen other {@link Deme}. This runs on the
+     * current thread between windows, in a fixed {@link Deme} order.
      *
-     * @param e The {@link Reproduction} {@link Event} details
+     * @param time Time at which the window closed
      */
     
-    private static void chooseFatherSim(Event e) {
-        
-        List<Sim> nonCompatSims = new ArrayList<Sim>();
+    private static void migrate(double time) {
         
-        Sim mate;
-        Sim mother = e.getSubject();
-        
-        // Different procedure on whether the mother has a mate or not
-        if (mother.isInARelationship(e.getTime())) {
+        for (int i = 0; i < demes.size(); i++) {
             
-            if (Math.random() < 1 - model.getLoyaltyFactor()) {
-                
-                mate = getRandomMate(e, nonCompatSims);
+            for (Sim sim : demes.get(i).takeEmigrants(time)) {
                 
-                mother.setMate(mate);
+                // Drawing among the other Demes only
+                int j = rnd.nextInt(demes.size() - 1);
                 
-                if (mate != null) {
-                    
-                    mate.setMate(mother);
-                }
+                demes.get(j < i ? j : j + 1).immigrate(sim, time);
             }
-        } else {
+        }
+    }
+    
+    /**
+     * Indicates whether every {@link Deme} has run out of {@link Event}s.
+     *
+     * @return <ul><li>{@code true} if no {@link Event} remains</li><li>
+     * {@code false} otherwise</li></ul>
+     */
+    
+    private static boolean isDone() {
+        
+        for (Deme deme : demes) {
             
-            do {
+            if (!deme.isDone()) {
                 
-                mate = getRandomMate(e, nonCompatSims);
-                
-                if (mate != null) {
-                    
-                    if (!mate.isInARelationship(e.getTime())) {
-                        
-                        mother.setMate(mate);
-                        mate.setMate(mother);
-                    } else {
-                        
-                        if (Math.random() < 1 - model.getLoyaltyFactor()) {
-                            
-                            mother.setMate(mate);
-                            mate.setMate(mother);
-                        }
-                    }
-                }
-            } while (!(mother.isInARelationship(e.getTime())
-            || populationList.isEmpty()));
+                return false;
+            }
         }
         
-        // Restoring population List to its original state
-        populationList.addAll(nonCompatSims);
+        return true;
     }
     
     /**
-     * Selects a mating {@link Sim} from the present population for the
-     * {@link Sim} associated with the given {@link Event}.
+     * Retrieves the number of {@link Sim}s currently alive across all
+     * {@link Deme}s.
      *
-     * @param e The {@link Event} details
-     * @param checkedSim {@link List} of checked {@link Sim}s
+     * @return The size of the living population
      */
     
-    private static Sim getRandomMate(Event e, List<Sim> checkedSim) {
+    private static int populationSize() {
         
-        Sim mate = null;
+        int size = 0;
         
-        while (mate == null && !populationList.isEmpty()) {
-            
-            int rndIndex = rnd.nextInt(populationList.size());
-            Sim potentialMate = populationList.remove(rndIndex);
+        for (Deme deme : demes) {
             
-            mate = potentialMate != null
-                && !(potentialMate.getSex().equals(e.getSubject().getSex()))
-                && potentialMate.isMatingAge(e.getTime())
-                && potentialMate.isAlive(e.getTime()) ? potentialMate : null;
-                
-            checkedSim.add(potentialMate); // For rebalancing population list
+            size += deme.size();
         }
         
-        return mate;
+        return size;
     }
     
     /**
-     * Divides the current population into female and male subgroups.
+     * Traces the lineages of a uniform random sample of the {@link Sim}s of
+     * the given sex alive at the end of the last simulation.
      *
-     * @param females The female {@link Sim} subgroup
-     * @param males The male {@link Sim} subgroup
+     * @param sex Sex of the {@link Sim}s sampled and of the parents followed
+     * @param size Number of {@link Sim}s to draw, 0 to use the fraction
+     * @param fraction Fraction of {@link Sim}s to draw, 0 to draw them all if
+     * no number is given either
+     * @return The {@link Coalescence} of the sample
      */
     
-    private static void dividePop(MinPQ<Sim> females, MinPQ<Sim> males) {
+    private static Coalescence traceSample(Sim.Sex sex, int size,
+        double fraction) {
         
-        while (!populationQ.isEmpty()) {
-            
-            Sim sim = populationQ.delMin();
+        int population = 0;
+        
+        for (Deme deme : demes) {
             
-            if (sim.getSex().equals(Sim.Sex.F)) {
-                
-                females.insert(sim);
-            } else {
+            for (Sim sim : deme.getPopulation()) {
                 
-                males.insert(sim);
+                if (sim.getSex().equals(sex)) {
+                    
+                    population++;
+                }
             }
         }
+        
+        int k = size > 0 ? Math.min(size, population) : fraction > 0.0 ?
+            (int)Math.min(Math.ceil(fraction * population), population) :
+            population;
+        
+        return Coalescence.trace(reservoir(sex, k), population, sex, endTime);
     }
     
     /**
-     * Defines gender coalescence after the simulation has been completed.
+     * Draws a uniform random sample of the {@link Sim}s alive at the end of
+     * the last simulation by reservoir sampling in a single pass over the
+     * {@link Deme}s, so that only the sampled {@link Sim}s are held.
      *
-     * @param subgroup The {@link Sim} gender subgroup
-     * @param parent Method name depending on the gender passed which can be
-     * either <ul><li>getMother for the female subgroup</li><li>getFather for
-     * the male subgroup</li></ul>
-     * @param coalescence The Map for holding the value pairs to plot
+     * @param sex Sex of the {@link Sim}s to sample or null for both sexes
+     * @param k Number of {@link Sim}s to draw
+     * @return The sampled {@link Sim}s, all of them if there are at most
+     * {@code k}
      */
     
-    private static void ancestralLineage(MinPQ<Sim> subgroup, String parent,
-        Map<Double, Integer> coalescence) {
-        
-        if (subgroup.isEmpty()) {
-            
-            return;
-        }
+    private static List<Sim> reservoir(Sim.Sex sex, int k) {
         
-        Sim youngest;
+        List<Sim> reservoir = new ArrayList<Sim>(k);
+        int seen = 0;
         
-        while (!((youngest = subgroup.delMin()).isFounder())
-            && subgroup.size() > 1) {
+        for (Deme deme : demes) {
             
-            Sim parentSim = null;
-            
-            try {
-                
-                parentSim = (Sim)youngest.getClass().getDeclaredMethod(parent)
-                .invoke(youngest, new Object[0]);
-            } catch(Exception e) {
+            for (Sim sim : deme.getPopulation()) {
                 
-                e.printStackTrace();
-            }
-            
-            if (subgroup.contains(parentSim)) {
+                if (sex != null && !sim.getSex().equals(sex)) {
+                    
+                    continue;
+                }
                 
-                coalescence.put(youngest.getBirthTime(), subgroup.size());
-            } else {
+                // Each Sim seen so far stays in the reservoir with k / seen
+                if (seen < k) {
+                    
+                    reservoir.add(sim);
+                } else {
+                    
+                    int j = rnd.nextInt(seen + 1);
+                    
+                    if (j < k) {
+                        
+                        reservoir.set(j, sim);
+                    }
+                }
                 
-                subgroup.insert(parentSim);
+                seen++;
             }
         }
+        
+        return reservoir;
+    }
+    
+    /**
+     * Adds the coalescences of traced lineages to the given series.
+     *
+     * @param lineage The traced lineages
+     * @param series Name of the series
+     * @param coalescence The Map for holding the value pairs to plot
+     */
+    
+    private static void ancestralLineage(Coalescence lineage, String series,
+        Map<Double, Integer> coalescence) {
+        
+        for (int i = 0; i < lineage.size(); i++) {
+            
+            record(series, coalescence, lineage.getTime(i),
+            lineage.getLineages(i));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package pedigree;
+
+import java.util.Random;
+
+/**
+ * The class {@link UniformMateChoice} picks a male of mating age uniformly,
+ * regardless of his age, with a single draw from the {@link MatePool}.
+ *
+ * @version 1.0 2021-03-28
+ * @author Philippe Gabriel
+ */
+
+public class UniformMateChoice implements MateChoice {
+    
+    /**
+     * Picks a male uniformly, a partnered male being weighted relative to a
+     * single one.
+     *
+     * @param mother The female {@link Sim} looking for a mate
+     * @param pool The males of mating age of her {@link Deme}
+     * @param partneredWeight Weight of a partnered male relative to a single
+     * one
+     * @param rnd Pseudorandom number generator for uniform[0,1]
+     * @return The candidate or null if the pool holds no male of positive
+     * weight
+     */
+    
+    @Override
+    public Sim choose(Sim mother, MatePool pool, double partneredWeight,
+        Random rnd) {
+        
+        return pool.draw(rnd, partneredWeight);
+    }
+    
+    /**
+     * Defines the string implementation of a {@link UniformMateChoice}.
+     *
+     * @return String implementation of {@link UniformMateChoice}
+     * @see java.lang.Object
+     */
+    @Override
+    public String toString() {
+        
+        return getClass().getName();
+    }
+}
\ No newline at end of file